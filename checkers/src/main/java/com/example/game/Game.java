@@ -8,14 +8,31 @@ import java.util.*;
 
 public class Game {
     private Board board;
+    private BoardSnapshot snapshot;
+    private final GameHistory history;
     private Map<String, Player> players = new HashMap<>();
     private Stone currentTurn;
     private GameState state;
 
-    private final Rules rules = new GoRules();
+    private final Rules rules;
+    private final LegalMoveMask legal;
+    private final IncrementalScorer scorer;
 
     public Game(int boardSize) {
-        this.board = new Board(boardSize);
+        this(boardSize, KoRule.SIMPLE);
+    }
+
+    public Game(int boardSize, KoRule koRule) {
+        this(boardSize, boardSize, koRule);
+    }
+
+    public Game(int width, int height, KoRule koRule) {
+        this.rules = new GoRules(koRule);
+        this.board = new Board(width, height);
+        this.snapshot = BoardSnapshot.of(board);
+        this.history = new GameHistory(snapshot);
+        this.legal = new LegalMoveMask(board, rules);
+        this.scorer = new IncrementalScorer(board);
         this.players = new HashMap<>();
         this.currentTurn = Stone.BLACK;
         this.state = GameState.WAITING;
@@ -27,7 +44,7 @@ public class Game {
         listeners.add(l);
     }
 
-    private void notifyMove(Move move, MoveResult result, Board snapshot) {
+    private void notifyMove(Move move, MoveResult result, BoardSnapshot snapshot) {
         for (GameListener l : listeners) {
             l.onMoveApplied(move, result, snapshot);
         }
@@ -44,10 +61,23 @@ public class Game {
          return board; 
     }
 
+    /** Niemutowalny stan planszy po ostatniej zmianie (współdzieli niezmienione fragmenty). */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     public int getBoardSize() {
         return board.getSize();
     }
 
+    public int getBoardWidth() {
+        return board.getWidth();
+    }
+
+    public int getBoardHeight() {
+        return board.getHeight();
+    }
+
     public void start() {
         if (players.size() == 2) {
             state = GameState.RUNNING;
@@ -103,13 +133,22 @@ public class Game {
         if (state != GameState.RUNNING) return MoveResult.error("Game not running");
         if (current.getColor() != currentTurn) return MoveResult.error("Not your turn");
 
-        MoveResult result = rules.applyMove(board, move.getX(), move.getY(), current.getColor());
+        int x = move.getX(), y = move.getY();
+        if (!board.isOnBoard(x, y) || !legal.isLegal(board.index(x, y), current.getColor())) {
+            //szybkie odrzucenie z maski, reguły podają tylko powód
+            MoveResult error = rules.validate(board, x, y, current.getColor());
+            return error != null ? error : MoveResult.error("Niedozwolony ruch");
+        }
+
+        MoveResult result = rules.applyMove(board, x, y, current.getColor());
 
         if (!result.isOk()) {
             return result;
         }
-        //aktualizacja planszy
-        board = result.getBoardSnapshot();
+        //plansza została zaktualizowana w miejscu przez reguły
+        legal.update(result.getUndo());
+        snapshot = snapshot.next(board);
+        history.append(PackedMove.move(board.index(x, y), current.getColor()), snapshot, board);
         //policz jencow
         int captured = result.getCaptures().size();
         current.addPrisoners(captured);
@@ -121,18 +160,48 @@ public class Game {
             currentTurn = Stone.BLACK;
         }
         //powiadom listenerow
-        notifyMove(move, result, result.getBoardSnapshot());
+        notifyMove(move, result, snapshot);
 
         return result;
     }
 
+    /** Czy gracz na ruchu może zagrać na polu (x, y). Sprawdzenie w O(1) z maski. */
+    public boolean isLegal(int x, int y) {
+        return board.isOnBoard(x, y) && legal.isLegal(board.index(x, y), currentTurn);
+    }
+
+    /** Maska legalnych punktów gracza na ruchu (bit y*size+x); kopia. */
+    public long[] legalMoves() {
+        return legal.toMask(currentTurn);
+    }
+
+    /** Liczba legalnych punktów dla koloru. */
+    public int legalMoveCount(Stone color) {
+        return legal.count(color);
+    }
+
+    /** Indeks k-tego legalnego punktu dla koloru (do losowania ruchu), albo -1. */
+    public int legalMove(Stone color, int k) {
+        return legal.point(color, k);
+    }
+
     public boolean isMarkedGroupOk(int x, int y, boolean isDead) {
-        return board.markGroup(x, y, isDead);
+        if (!board.markGroup(x, y, isDead)) return false;
+        history.append(GameHistory.mark(board.index(x, y), isDead), snapshot, board);
+        return true;
+    }
+
+    /** Wznowienie gry z fazy liczenia: oznaczenia martwych grup przepadają, {@code next} gra pierwszy. */
+    public void resume(Stone next) {
+        board.clearDeadMarks();
+        history.append(GameHistory.resume(next), snapshot, board);
+        currentTurn = next;
+        state = GameState.RUNNING;
     }
 
     public void applyFinishToBoard() {
-        for (int y = 0; y < board.getSize(); y++) {
-            for (int x = 0; x < board.getSize(); x++) {
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
 
                 if (board.isDead(x, y)) {
                     Stone s = board.get(x, y);
@@ -147,20 +216,37 @@ public class Game {
                 }
             }
         }
+        legal.rebuild();
+        snapshot = snapshot.next(board);
+        history.append(GameHistory.finish(), snapshot, board);
     }
 
     public int getWhiteScore() {
-        TerritoryScorer.Score score = TerritoryScorer.score(board);
-        int whiteTotal = score.whiteTerritory + getWhiteCaptures();
+        //wynik liczony przyrostowo - bez zmian na planszy odczyt jest O(1)
+        scorer.sync(board);
+        int whiteTotal = scorer.getWhiteTerritory() + getWhiteCaptures();
         return whiteTotal;
     }
 
     public int getBlackScore() {
-        TerritoryScorer.Score score = TerritoryScorer.score(board);
-        int whiteTotal = score.blackTerritory + getBlackCaptures();
+        scorer.sync(board);
+        int whiteTotal = scorer.getBlackTerritory() + getBlackCaptures();
         return whiteTotal;
     }
 
+    /**
+     * Bieżący wynik planszy (kamienie i terytorium), liczony przyrostowo.
+     * W fazie liczenia z oznaczonymi martwymi grupami - podgląd bez tych kamieni
+     * ze wspólnej pamięci podręcznej.
+     */
+    public TerritoryScorer.Score getScore() {
+        if (state == GameState.SCORING && board.hasDeadMarks()) {
+            return ScoreCache.shared().score(board);
+        }
+        scorer.sync(board);
+        return scorer.score();
+    }
+
     public String boardString() {
         return board.toString();
     }
@@ -174,6 +260,32 @@ public class Game {
         return state;
     }
 
+    /** Pas gracza na ruchu: zapis w historii i zmiana tury. */
+    public void pass() {
+        history.append(PackedMove.pass(currentTurn), snapshot, board);
+        nextTurn();
+    }
+
+    /** Liczba zapisanych ruchów (z pasami). */
+    public int getMoveCount() {
+        return history.moveCount();
+    }
+
+    /** i-ty ruch partii w postaci {@link PackedMove}. */
+    public int getMove(int i) {
+        return history.move(i);
+    }
+
+    /** Log zdarzeń partii (ruchy, pasy, oznaczenia, wznowienia) z klatkami kluczowymi. */
+    public GameHistory getHistory() {
+        return history;
+    }
+
+    /** Plansza po pierwszych {@code m} ruchach partii (nowy obiekt, odtworzony z historii). */
+    public Board boardAtMove(int m) {
+        return history.boardAtMove(m);
+    }
+
     public void nextTurn() {
         currentTurn = (currentTurn == Stone.BLACK ? Stone.WHITE : Stone.BLACK);
     }
@@ -1,7 +1,7 @@
 package com.example.game;
 import com.example.model.Move; 
 import com.example.model.MoveResult;
-import com.example.model.Board;
+import com.example.model.BoardSnapshot;
 
 public interface GameListener {
     /**
@@ -9,7 +9,7 @@ public interface GameListener {
      *
      * @param move          ruch wykonany przez gracza
      * @param result        wynik ruchu (np. zbicia)
-     * @param snapshotBoard kopia planszy po ruchu
+     * @param snapshot      niemutowalny stan planszy po ruchu (można go przechowywać)
      */
-    void onMoveApplied(Move move, MoveResult result, Board snapshotBoard);
+    void onMoveApplied(Move move, MoveResult result, BoardSnapshot snapshot);
 }
@@ -0,0 +1,146 @@
+package com.example.game;
+
+import com.example.model.*;
+import com.example.rules.KoRule;
+
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Pomiar skalowania względem rozmiaru planszy: czas ruchu i pamięć na partię.
+ *
+ * Dla każdego rozmiaru rozgrywa losowe partie przez {@link Game#applyMove} (reguły,
+ * maska legalnych ruchów, snapshot) i po każdym ruchu robi to, co serwer: czyta wynik
+ * i koduje planszę do BOARD64. Partia kończy się po {@code width * height} ruchach
+ * albo dwóch pasach. Pamięć to przyrost sterty po rozegraniu i przetrzymaniu
+ * {@code GAMES_FOR_MEMORY} partii, podzielony przez ich liczbę.
+ *
+ * Uruchomienie: {@code java -cp target/classes com.example.game.ScalingBenchmark [rozmiary...]},
+ * rozmiary jako {@code 19} albo {@code 25x13}. Wyniki w {@code manual/README.md}.
+ */
+public final class ScalingBenchmark {
+    private static final String[] DEFAULT_SIZES = {"9", "13", "19", "25", "31", "37", "45", "52", "19x9", "52x13"};
+    private static final int WARMUP_GAMES = 30;
+    private static final int MEASURED_MOVES = 200_000;
+    private static final int GAMES_FOR_MEMORY = 50;
+
+    private ScalingBenchmark() {}
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : DEFAULT_SIZES;
+        System.out.println("| plansza | punkty | ruchy/partia | średni ruch [µs] | p99 ruchu [µs] | pamięć/partia [KB] |");
+        System.out.println("|---|---:|---:|---:|---:|---:|");
+        for (String size : sizes) {
+            String[] dims = size.toLowerCase().split("x");
+            int width = Integer.parseInt(dims[0]);
+            int height = dims.length > 1 ? Integer.parseInt(dims[1]) : width;
+            run(width, height);
+        }
+    }
+
+    private static void run(int width, int height) {
+        Random random = new Random(width * 131L + height);
+        for (int i = 0; i < WARMUP_GAMES; i++) play(width, height, random, null);
+
+        // czasy pojedynczych ruchów z kolejnych partii, aż do MEASURED_MOVES
+        long[] times = new long[MEASURED_MOVES];
+        int[] count = {0};
+        int games = 0;
+        long moves = 0;
+        while (count[0] < MEASURED_MOVES) {
+            moves += play(width, height, random, new Recorder(times, count));
+            games++;
+        }
+        Arrays.sort(times);
+        double mean = Arrays.stream(times).average().orElse(0) / 1000.0;
+        double p99 = times[(int) (times.length * 0.99)] / 1000.0;
+
+        long before = usedHeap();
+        Game[] kept = new Game[GAMES_FOR_MEMORY];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = newGame(width, height);
+            play(kept[i], random, null);
+        }
+        long after = usedHeap();
+        Reference.reachabilityFence(kept);
+        double kb = (after - before) / 1024.0 / kept.length;
+
+        System.out.printf("| %dx%d | %d | %d | %.2f | %.2f | %.1f |%n",
+                width, height, width * height, moves / games, mean, p99, kb);
+    }
+
+    private static Game newGame(int width, int height) {
+        Game game = new Game(width, height, KoRule.SIMPLE);
+        game.join(new Player("b", "Black", Stone.BLACK));
+        game.join(new Player("w", "White", Stone.WHITE));
+        return game;
+    }
+
+    private static int play(int width, int height, Random random, Recorder recorder) {
+        return play(newGame(width, height), random, recorder);
+    }
+
+    // rozgrywa losową partię; zwraca liczbę wykonanych ruchów
+    private static int play(Game game, Random random, Recorder recorder) {
+        Board board = game.getBoard();
+        int limit = board.getPointCount();
+        int passes = 0;
+        int played = 0;
+        while (played < limit && passes < 2) {
+            Stone color = game.getCurrentTurn();
+            int legal = game.legalMoveCount(color);
+            if (legal == 0) {
+                game.pass();
+                passes++;
+                continue;
+            }
+            passes = 0;
+            int p = game.legalMove(color, random.nextInt(legal));
+            Move move = new Move(MoveType.MOVE, board.position(p), color == Stone.BLACK ? "b" : "w");
+
+            long start = System.nanoTime();
+            MoveResult result = game.applyMove(move);
+            game.getScore();
+            BoardCodec.toBase64(game.getSnapshot());
+            long elapsed = System.nanoTime() - start;
+
+            if (!result.isOk()) {
+                // ko zabronione dopiero przez reguły - gracz pasuje
+                game.pass();
+                continue;
+            }
+            if (recorder != null) recorder.record(elapsed);
+            played++;
+        }
+        return played;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // zapisuje czasy ruchów do wspólnej tablicy, dopóki jest miejsce
+    private static final class Recorder {
+        private final long[] times;
+        private final int[] count;
+
+        Recorder(long[] times, int[] count) {
+            this.times = times;
+            this.count = count;
+        }
+
+        void record(long nanos) {
+            if (count[0] < times.length) times[count[0]++] = nanos;
+        }
+    }
+}
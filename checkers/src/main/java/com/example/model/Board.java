@@ -1,117 +1,598 @@
 package com.example.model;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Plansza Go w postaci bitboardów.
+ *
+ * Punkt (x, y) ma indeks {@code y * width + x}. Każdy kolor ma własny zbiór bitów
+ * ({@code long[]}), osobny zbiór trzyma martwe kamienie oznaczone w fazie liczenia.
+ * Liczenie kamieni, szukanie pustych pól i kopiowanie planszy działają na całych słowach.
+ *
+ * Plansza utrzymuje też przyrostowo hash Zobrista układu kamieni ({@link #hash()}),
+ * aktualizowany przy każdej zmianie pola.
+ *
+ * Na potrzeby reguł plansza utrzymuje łańcuchy kamieni i ich pseudo-oddechy
+ * ({@link Chains}). Struktura powstaje przy pierwszym zapytaniu, potem jest
+ * aktualizowana przy każdym {@link #set}, więc bicie i samobójstwo sprawdza się w O(1).
+ *
+ * Ruch można wykonać w miejscu metodą {@link #play}, która zwraca mały rekord
+ * {@link Undo} pozwalający go cofnąć ({@link #undo}), bez kopiowania całej planszy.
+ *
+ * Plansza może być prostokątna ({@code width x height}), każdy bok od 1 do
+ * {@link #MAX_SIZE}.
+ */
 public final class Board implements Cloneable {
-    private final int size;
-    private Stone[][] cells;
-    private boolean[][] dead;
+    /** Największy obsługiwany bok planszy. */
+    public static final int MAX_SIZE = 52;
+
+    private final int width;
+    private final int height;
+    private final NeighbourTable nt;
+    private final PositionTable positions;
+    private long[] black;
+    private long[] white;
+    private long[] dead;
+    private long hash;
+    private Chains chains;
+    private GroupFinder finder;
+
+    private static final int[] NO_POINTS = new int[0];
 
 
     public Board(int size) {
-        this.size = size;
-        this.cells = new Stone[size][size];
-        this.dead = new boolean[size][size];
+        this(size, size);
+    }
+
+    public Board(int width, int height) {
+        checkDimensions(width, height);
+        this.width = width;
+        this.height = height;
+        this.nt = NeighbourTable.forSize(width, height);
+        this.positions = PositionTable.forSize(width, height);
+        int words = wordsFor(width * height);
+        this.black = new long[words];
+        this.white = new long[words];
+        this.dead = new long[words];
+    }
 
-        for (int i = 0; i<size; i++) {
-            Arrays.fill(cells[i], Stone.EMPTY);
+    private static int wordsFor(int points) {
+        return (points + 63) >>> 6;
+    }
+
+    /** Sprawdza wymiary planszy (każdy bok 1..{@link #MAX_SIZE}). */
+    public static void checkDimensions(int width, int height) {
+        if (width < 1 || height < 1 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("Unsupported board size: " + width + "x" + height);
         }
     }
 
+    /** Bok planszy kwadratowej; dla prostokątnej - szerokość. */
     public int getSize() {
-        return size;
+        return width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isSquare() {
+        return width == height;
+    }
+
+    /** Liczba punktów planszy. */
+    public int getPointCount() {
+        return width * height;
+    }
+
+    /** Indeks punktu (x, y) w zbiorach bitów. */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /** Czy plansza ma te same wymiary co podana. */
+    public boolean sameDimensions(Board other) {
+        return other.width == width && other.height == height;
     }
 
     public void set(int x, int y, Stone s) {
-        cells[y][x] = s;
+        setPoint(index(x, y), s);
+    }
+
+    private void setPoint(int p, Stone s) {
+        int w = p >>> 6;
+        long bit = 1L << p;
+        Stone old = stoneAt(p);
+        if (old == s) return;
+        // zdejmij stary kamień z hasha, dołóż nowy
+        hash ^= Zobrist.key(p, old) ^ Zobrist.key(p, s);
+        black[w] &= ~bit;
+        white[w] &= ~bit;
+        if (chains != null && old != Stone.EMPTY) chains.removed(p, old);
+        if (s == Stone.BLACK) black[w] |= bit;
+        else if (s == Stone.WHITE) white[w] |= bit;
+        if (chains != null && s != Stone.EMPTY) chains.placed(p);
+    }
+
+    /** Hash Zobrista aktualnego układu kamieni (oznaczenia martwych grup nie wchodzą). */
+    public long hash() {
+        return hash;
     }
 
     public Stone get(int x, int y) {
-        return cells[y][x];
+        return stoneAt(index(x, y));
+    }
+
+    /** Kamień na punkcie o podanym indeksie. */
+    public Stone stoneAt(int p) {
+        int w = p >>> 6;
+        long bit = 1L << p;
+        if ((black[w] & bit) != 0) return Stone.BLACK;
+        if ((white[w] & bit) != 0) return Stone.WHITE;
+        return Stone.EMPTY;
     }
 
     public boolean isOnBoard(int x, int y) {
-        return x>=0 && x<size && y>=0 && y<size;
+        return x>=0 && x<width && y>=0 && y<height;
     }
 
     public List<Position> getNeighbours(int x, int y) {
-        List<Position> list = new ArrayList<>();
-        if (isOnBoard(x-1, y)) list.add(new Position(x-1, y));
-        if (isOnBoard(x+1, y)) list.add(new Position(x+1, y));
-        if (isOnBoard(x, y-1)) list.add(new Position(x, y-1));
-        if (isOnBoard(x, y+1)) list.add(new Position(x, y+1));
+        int p = index(x, y);
+        int d = nt.degree(p);
+        List<Position> list = new ArrayList<>(d);
+        for (int k = 0; k < d; k++) {
+            int q = nt.neighbour(p, k);
+            list.add(positions.at(q));
+        }
         return list;
     }
 
+    /** Kanoniczna pozycja punktu o indeksie p (bez alokacji). */
+    public Position position(int p) {
+        return positions.at(p);
+    }
+
+    /** Współdzielona tablica sąsiadów dla rozmiaru tej planszy. */
+    public NeighbourTable neighbours() {
+        return nt;
+    }
+
+    /** Liczba sąsiadów punktu o indeksie p. */
+    public int neighbourCount(int p) {
+        return nt.degree(p);
+    }
+
+    /** k-ty sąsiad punktu p, dla {@code 0 <= k < neighbourCount(p)}; bez alokacji. */
+    public int neighbour(int p, int k) {
+        return nt.neighbour(p, k);
+    }
+
+    private Chains chains() {
+        if (chains == null) chains = new Chains(this);
+        return chains;
+    }
+
+    /**
+     * Liczba pseudo-oddechów łańcucha zawierającego kamień (x, y): każda para
+     * (kamień, pusty sąsiad) liczona osobno. Zero oznacza brak oddechów.
+     */
+    public int pseudoLiberties(int x, int y) {
+        return chains().pseudoLiberties(index(x, y));
+    }
+
+    /** Czy łańcuch zawierający kamień (x, y) ma choć jeden oddech. */
+    public boolean hasLiberties(int x, int y) {
+        return chains().pseudoLiberties(index(x, y)) > 0;
+    }
+
+    /** Liczba kamieni w łańcuchu zawierającym kamień (x, y). */
+    public int chainSize(int x, int y) {
+        return chains().chainSize(index(x, y));
+    }
+
+    /** Identyfikator łańcucha (indeks jego reprezentanta); stały do zmiany łańcucha. */
+    public int chainId(int x, int y) {
+        return chains().find(index(x, y));
+    }
+
+    /**
+     * Zdejmuje z planszy cały łańcuch zawierający kamień (x, y).
+     *
+     * @return indeksy zdjętych punktów (pusta tablica dla pustego pola)
+     */
+    public int[] removeChain(int x, int y) {
+        int p = index(x, y);
+        Stone c = stoneAt(p);
+        if (c == Stone.EMPTY) return NO_POINTS;
+        Chains ch = chains();
+        int[] out = new int[ch.chainSize(p)];
+        ch.removeChain(p, out, 0);
+        long[] bits = c == Stone.BLACK ? black : white;
+        for (int q : out) {
+            bits[q >>> 6] &= ~(1L << q);
+            hash ^= Zobrist.key(q, c);
+        }
+        return out;
+    }
+
+    /**
+     * Czy postawienie kamienia na pustym polu (x, y) byłoby samobójstwem.
+     * Nie zmienia planszy: łańcuch traci tyle pseudo-oddechów, ile razy sąsiaduje
+     * z (x, y), więc porównanie z tą liczbą daje dokładną odpowiedź.
+     */
+    public boolean isSuicide(int x, int y, Stone color) {
+        int p = index(x, y);
+        Chains ch = chains();
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            int q = nt.neighbour(p, k);
+            Stone s = stoneAt(q);
+            if (s == Stone.EMPTY) return false;
+            int root = ch.find(q);
+            boolean otherLiberty = ch.pseudoLiberties(root) > ch.adjacency(root, p);
+            // własny łańcuch z innym oddechem albo bicie łańcucha przeciwnika
+            if (s == color ? otherLiberty : !otherLiberty) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hash planszy po postawieniu kamienia na pustym polu (x, y), łącznie z biciem.
+     * Nie zmienia planszy i nic nie alokuje.
+     */
+    public long hashAfter(int x, int y, Stone color) {
+        int p = index(x, y);
+        Chains ch = chains();
+        long h = hash ^ Zobrist.key(p, color);
+        int r0 = -1, r1 = -1, r2 = -1;
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            int q = nt.neighbour(p, k);
+            Stone s = stoneAt(q);
+            if (s == Stone.EMPTY || s == color) continue;
+            int root = ch.find(q);
+            if (root == r0 || root == r1 || root == r2) continue;
+            if (r0 < 0) r0 = root; else if (r1 < 0) r1 = root; else r2 = root;
+            if (ch.pseudoLiberties(root) == ch.adjacency(root, p)) h ^= ch.chainKey(root);
+        }
+        return h;
+    }
+
+    /**
+     * Wykonuje ruch w miejscu: stawia kamień i zdejmuje zbite łańcuchy przeciwnika.
+     * Legalność (pole puste, brak samobójstwa, ko) sprawdza wywołujący.
+     *
+     * @return rekord pozwalający cofnąć ruch
+     */
+    public Undo play(int x, int y, Stone color) {
+        int p = index(x, y);
+        long prevHash = hash;
+        Chains ch = chains();
+        setPoint(p, color);
+
+        // zbite łańcuchy sąsiadów (najwyżej cztery różne)
+        int total = 0;
+        int r0 = -1, r1 = -1, r2 = -1, r3 = -1;
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            int q = nt.neighbour(p, k);
+            Stone s = stoneAt(q);
+            if (s == Stone.EMPTY || s == color || ch.pseudoLiberties(q) > 0) continue;
+            int root = ch.find(q);
+            if (root == r0 || root == r1 || root == r2) continue;
+            if (r0 < 0) r0 = root; else if (r1 < 0) r1 = root; else if (r2 < 0) r2 = root; else r3 = root;
+            total += ch.chainSize(root);
+        }
+        if (total == 0) return new Undo(p, color, NO_POINTS, prevHash);
+
+        Stone enemy = color == Stone.BLACK ? Stone.WHITE : Stone.BLACK;
+        long[] bits = enemy == Stone.BLACK ? black : white;
+        int[] captured = new int[total];
+        int n = 0;
+        for (int k = 0; k < 4; k++) {
+            int root = k == 0 ? r0 : k == 1 ? r1 : k == 2 ? r2 : r3;
+            if (root < 0) continue;
+            int from = n;
+            n += ch.removeChain(root, captured, from);
+            for (int i = from; i < n; i++) {
+                int q = captured[i];
+                bits[q >>> 6] &= ~(1L << q);
+                hash ^= Zobrist.key(q, enemy);
+            }
+        }
+        return new Undo(p, color, captured, prevHash);
+    }
+
+    /** Cofa ruch wykonany przez {@link #play}. Ruchy cofa się w odwrotnej kolejności. */
+    public void undo(Undo u) {
+        setPoint(u.point, Stone.EMPTY);
+        Stone enemy = u.color == Stone.BLACK ? Stone.WHITE : Stone.BLACK;
+        for (int q : u.captured) setPoint(q, enemy);
+        hash = u.prevHash;
+    }
+
+    /** Zbite punkty ruchu jako lista pozycji (widok na kanoniczne obiekty {@link PositionTable}). */
+    public List<Position> capturedPositions(Undo u) {
+        if (u.captured.length == 0) return Collections.emptyList();
+        return new AbstractList<Position>() {
+            @Override
+            public Position get(int i) {
+                return positions.at(u.captured[i]);
+            }
+
+            @Override
+            public int size() {
+                return u.captured.length;
+            }
+        };
+    }
+
+    /**
+     * Zapis ruchu wykonanego przez {@link Board#play}: postawiony punkt, zbite punkty
+     * i hash planszy sprzed ruchu.
+     */
+    public static final class Undo {
+        private final int point;
+        private final Stone color;
+        private final int[] captured;
+        private final long prevHash;
+
+        private Undo(int point, Stone color, int[] captured, long prevHash) {
+            this.point = point;
+            this.color = color;
+            this.captured = captured;
+            this.prevHash = prevHash;
+        }
+
+        public int getPoint() { return point; }
+        public Stone getColor() { return color; }
+        public long getPrevHash() { return prevHash; }
+        public int getCapturedCount() { return captured.length; }
+        public int getCaptured(int i) { return captured[i]; }
+    }
+
+    /** Liczba kamieni danego koloru (popcount po słowach). */
+    public int countStones(Stone s) {
+        long[] bits = s == Stone.BLACK ? black : s == Stone.WHITE ? white : null;
+        if (bits == null) return emptyCount();
+        int n = 0;
+        for (long word : bits) n += Long.bitCount(word);
+        return n;
+    }
+
+    /** Liczba pustych punktów. */
+    public int emptyCount() {
+        int occupied = 0;
+        for (int w = 0; w < black.length; w++) {
+            occupied += Long.bitCount(black[w] | white[w]);
+        }
+        return getPointCount() - occupied;
+    }
+
+    /**
+     * Zwraca indeks k-tego (od zera) pustego punktu albo -1, gdy pustych jest mniej.
+     * Całe słowa są pomijane za pomocą popcount.
+     */
+    public int emptyPoint(int k) {
+        int points = getPointCount();
+        for (int w = 0; w < black.length; w++) {
+            long free = ~(black[w] | white[w]) & validMask(w, points);
+            int n = Long.bitCount(free);
+            if (k < n) {
+                for (; k > 0; k--) free &= free - 1;
+                return (w << 6) + Long.numberOfTrailingZeros(free);
+            }
+            k -= n;
+        }
+        return -1;
+    }
+
+    /** Indeks pierwszego pustego punktu od {@code from} włącznie albo -1. */
+    public int nextEmpty(int from) {
+        int points = getPointCount();
+        if (from >= points) return -1;
+        int w = from >>> 6;
+        long free = ~(black[w] | white[w]) & validMask(w, points) & (-1L << from);
+        while (true) {
+            if (free != 0) return (w << 6) + Long.numberOfTrailingZeros(free);
+            if (++w == black.length) return -1;
+            free = ~(black[w] | white[w]) & validMask(w, points);
+        }
+    }
+
+    // maska bitów słowa w, które odpowiadają punktom planszy
+    private static long validMask(int w, int points) {
+        int rest = points - (w << 6);
+        return rest >= 64 ? -1L : (1L << rest) - 1;
+    }
+
+    /** Usuwa z planszy wszystkie kamienie wskazane maską (operacja na słowach). */
+    public void removeStones(long[] mask) {
+        for (int w = 0; w < black.length; w++) {
+            long b = black[w] & mask[w];
+            long wh = white[w] & mask[w];
+            for (; b != 0; b &= b - 1) hash ^= Zobrist.key((w << 6) + Long.numberOfTrailingZeros(b), Stone.BLACK);
+            for (; wh != 0; wh &= wh - 1) hash ^= Zobrist.key((w << 6) + Long.numberOfTrailingZeros(wh), Stone.WHITE);
+            black[w] &= ~mask[w];
+            white[w] &= ~mask[w];
+        }
+        chains = null; // dowolna maska może porozbijać łańcuchy - odbuduj przy potrzebie
+    }
+
+    /** Liczba 64-bitowych słów bitboardu. */
+    public int wordCount() {
+        return black.length;
+    }
+
+    /** Słowo w bitboardu kamieni koloru s (do porównań całymi słowami). */
+    public long stoneWord(Stone s, int w) {
+        return s == Stone.BLACK ? black[w] : s == Stone.WHITE ? white[w] : 0L;
+    }
+
+    /** Nowa, pusta maska punktów o rozmiarze zgodnym z planszą. */
+    public long[] newMask() {
+        return new long[black.length];
+    }
+
+    /** Kopiuje kamienie z innej planszy tego samego rozmiaru (słowo po słowie). */
+    public void copyFrom(Board other) {
+        if (!sameDimensions(other)) {
+            throw new IllegalArgumentException("Board size mismatch: " + other.dimensions() + " != " + dimensions());
+        }
+        System.arraycopy(other.black, 0, black, 0, black.length);
+        System.arraycopy(other.white, 0, white, 0, white.length);
+        hash = other.hash;
+        chains = null;
+    }
+
+    /** Czy obie plansze mają te same kamienie (bez porównywania oznaczeń martwych grup). */
+    public boolean samePosition(Board other) {
+        return other != null && sameDimensions(other) && other.hash == hash
+                && Arrays.equals(black, other.black)
+                && Arrays.equals(white, other.white);
+    }
+
+
+    // wyszukiwarka grup wielokrotnego użytku (bufory tworzone raz na planszę)
+    private GroupFinder finder() {
+        if (finder == null) finder = new GroupFinder(this);
+        return finder;
+    }
+
+    /**
+     * Kamienie i oddechy grupy (x, y) bez alokacji. Wynik jest współdzielony
+     * i nadpisywany przy następnym wywołaniu.
+     */
+    public GroupFinder.Result scanGroup(int x, int y) {
+        return finder().scan(x, y);
+    }
 
     //zwraca grupe, w ktorej jest dany kamien
     public Group getGroupAt(int x, int y) {
-        GroupFinder finder = new GroupFinder(this);
-        return finder.findGroup(x, y);
+        return finder().findGroup(x, y);
     }
 
     //zwraca wszystkie grupy
     public List<Group> getAllGroups() {
         List<Group> groups = new ArrayList<>();
-        boolean[][] visited = new boolean[size][size];
-
-        GroupFinder finder = new GroupFinder(this);
-
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                if (!visited[y][x] && cells[y][x] != Stone.EMPTY) {
-                    Group g = finder.findGroup(x, y);
-                    if (g != null) {
-                        groups.add(g);
-                        // oznacz wszystkie kamienie tej grupy jako odwiedzone
-                        for (Position p : g.stones) {
-                            visited[p.y][p.x] = true;
-                        }
-                    }
-                }
+        long[] visited = newMask();
+
+        GroupFinder finder = finder();
+
+        for (int w = 0; w < black.length; w++) {
+            // kamienie, które jeszcze nie należą do żadnej znalezionej grupy
+            long todo;
+            while ((todo = (black[w] | white[w]) & ~visited[w]) != 0) {
+                int p = (w << 6) + Long.numberOfTrailingZeros(todo);
+                Group g = finder.findGroup(p % width, p / width);
+                groups.add(g);
+                // oznacz wszystkie kamienie tej grupy jako odwiedzone
+                g.stones.orInto(visited);
             }
         }
         return groups;
     }
 
     //oznacza grupe jako zywa lub martwa
-    public boolean markGroup(int x, int y, boolean isDead) { 
-        Group g = getGroupAt(x, y); 
-        if (g == null) return false; 
+    public boolean markGroup(int x, int y, boolean isDead) {
+        GroupFinder.Result g = finder().scan(x, y);
+        if (g.getColor() == Stone.EMPTY) return false;
 
-        for (Position p : g.stones) { 
-            dead[p.y][p.x] = isDead; 
-        } 
-        return true; 
+        for (int i = 0; i < g.getStoneCount(); i++) {
+            int q = g.getStone(i);
+            if (isDead) dead[q >>> 6] |= 1L << q;
+            else dead[q >>> 6] &= ~(1L << q);
+        }
+        return true;
     }
 
     //czysci oznaczone wczesniej martwe pola, gdy gracze nie mogą dojść do porozumienia
     public void clearDeadMarks() {
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                dead[y][x] = false;
-            }
-        }
+        Arrays.fill(dead, 0L);
     }
 
     public boolean isDead(int x, int y) {
-        return dead[y][x];
+        int p = index(x, y);
+        return (dead[p >>> 6] & (1L << p)) != 0;
+    }
+
+    /** Czy jakakolwiek grupa jest oznaczona jako martwa. */
+    public boolean hasDeadMarks() {
+        for (long word : dead) {
+            if (word != 0) return true;
+        }
+        return false;
+    }
+
+    /** Kopia maski martwych kamieni (np. do {@link #removeStones}). */
+    public long[] deadMask() {
+        return dead.clone();
+    }
+
+    /** Hash oznaczeń martwych kamieni (0, gdy brak oznaczeń); liczony słowo po słowie. */
+    public long deadHash() {
+        long h = 0L;
+        for (int w = 0; w < dead.length; w++) {
+            for (long d = dead[w]; d != 0; d &= d - 1) {
+                h ^= Zobrist.key((w << 6) + Long.numberOfTrailingZeros(d), Stone.BLACK);
+            }
+        }
+        return h;
     }
 
 
     public void updateFromString(String data) {
         String[] lines = data.split("\n");
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
+        Arrays.fill(black, 0L);
+        Arrays.fill(white, 0L);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
                 char c = lines[y].charAt(x);
+                int p = index(x, y);
                 switch (c) {
-                    case 'B': cells[y][x] = Stone.BLACK; break;
-                    case 'W': cells[y][x] = Stone.WHITE; break;
-                    default:  cells[y][x] = Stone.EMPTY; break;
+                    case 'B': black[p >>> 6] |= 1L << p; break;
+                    case 'W': white[p >>> 6] |= 1L << p; break;
+                    default:  break;
                 }
             }
         }
+        rehash();
+        chains = null;
+    }
+
+    /** Wymiary jako tekst {@code WxH} (np. do komunikatów błędów). */
+    public String dimensions() {
+        return width + "x" + height;
+    }
+
+    // surowe słowa bitboardu koloru - dla BoardCodec (dekodowanie w miejscu)
+    long[] words(Stone s) {
+        return s == Stone.BLACK ? black : white;
+    }
+
+    // surowe słowa maski martwych kamieni - dla GameHistory (odtwarzanie klatki)
+    long[] deadWords() {
+        return dead;
+    }
+
+    // po hurtowej podmianie słów: nowy hash, łańcuchy do odbudowy
+    void wordsChanged() {
+        rehash();
+        chains = null;
+    }
+
+    // liczy hash od zera (po hurtowej podmianie zawartości)
+    private void rehash() {
+        long h = 0L;
+        for (int w = 0; w < black.length; w++) {
+            for (long b = black[w]; b != 0; b &= b - 1) h ^= Zobrist.key((w << 6) + Long.numberOfTrailingZeros(b), Stone.BLACK);
+            for (long wh = white[w]; wh != 0; wh &= wh - 1) h ^= Zobrist.key((w << 6) + Long.numberOfTrailingZeros(wh), Stone.WHITE);
+        }
+        hash = h;
     }
 
 
@@ -122,11 +603,12 @@ public final class Board implements Cloneable {
         try {
             Board copy = (Board) super.clone();
 
-            // głęboka kopia tablicy
-            copy.cells = new Stone[size][size];
-            for (int i = 0; i < size; i++) {
-                System.arraycopy(this.cells[i], 0, copy.cells[i], 0, size);
-            }
+            // kopia zbiorów bitów (kilka słów na kolor), hash kopiuje się razem z polami
+            copy.black = this.black.clone();
+            copy.white = this.white.clone();
+            copy.dead = this.dead.clone();
+            copy.chains = this.chains == null ? null : this.chains.copyFor(copy);
+            copy.finder = null; // wyszukiwarka jest związana z planszą, kopia utworzy własną
 
             return copy;
 
@@ -137,12 +619,13 @@ public final class Board implements Cloneable {
 
     public static Board fromString(String text) {
     String[] lines = text.split("\n");
-    int size = lines.length;
-    Board b = new Board(size);
+    int height = lines.length;
+    int width = lines[0].trim().length();
+    Board b = new Board(width, height);
 
-    for (int y = 0; y < size; y++) {
+    for (int y = 0; y < height; y++) {
         String row = lines[y].trim();
-        for (int x = 0; x < size; x++) {
+        for (int x = 0; x < width; x++) {
             char c = row.charAt(x);
             switch (c) {
                 case 'B' -> b.set(x, y, Stone.BLACK);
@@ -158,11 +641,13 @@ public final class Board implements Cloneable {
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        for (Stone[] row : cells) {
-            for (Stone s : row) {
-                sb.append(s == Stone.BLACK ? "B" :
-                          s == Stone.WHITE ? "W" : ".");
+        StringBuilder sb = new StringBuilder((width + 1) * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int p = index(x, y);
+                long bit = 1L << p;
+                sb.append((black[p >>> 6] & bit) != 0 ? 'B' :
+                          (white[p >>> 6] & bit) != 0 ? 'W' : '.');
             }
             sb.append("\n");
         }
@@ -0,0 +1,157 @@
+package com.example.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Binarny zapis planszy: 2 bity na punkt (00 - puste, 01 - czarny, 10 - biały).
+ *
+ * Format: bajt szerokości i bajt wysokości planszy, potem punkty w kolejności
+ * indeksów, cztery na bajt od najmłodszych bitów. Plansza 19x19 zajmuje 2 + 91 bajtów,
+ * 52x52 - 2 + 676.
+ * Kodowanie i dekodowanie działa bezpośrednio na przekazanym {@link ByteBuffer}
+ * i na słowach bitboardów, bez pośrednich tablic ani tekstu.
+ * Oznaczenia martwych kamieni nie są zapisywane.
+ */
+public final class BoardCodec {
+
+    private BoardCodec() {}
+
+    /** Liczba bajtów zapisu planszy size x size. */
+    public static int encodedLength(int size) {
+        return encodedLength(size, size);
+    }
+
+    /** Liczba bajtów zapisu planszy width x height. */
+    public static int encodedLength(int width, int height) {
+        return 2 + (width * height + 3) / 4;
+    }
+
+    // źródło słów bitboardu: Board albo BoardSnapshot
+    private interface Words {
+        long word(Stone s, int w);
+    }
+
+    /** Zapisuje planszę do bufora od jego bieżącej pozycji. */
+    public static void encode(Board board, ByteBuffer out) {
+        encode(board.getWidth(), board.getHeight(), board::stoneWord, out);
+    }
+
+    /** Zapisuje snapshot planszy do bufora od jego bieżącej pozycji. */
+    public static void encode(BoardSnapshot snapshot, ByteBuffer out) {
+        encode(snapshot.getWidth(), snapshot.getHeight(), snapshot::stoneWord, out);
+    }
+
+    private static void encode(int width, int height, Words words, ByteBuffer out) {
+        int n = width * height;
+        out.put((byte) width);
+        out.put((byte) height);
+        int acc = 0;
+        int shift = 0;
+        long black = 0L;
+        long white = 0L;
+        for (int p = 0; p < n; p++) {
+            if ((p & 63) == 0) {
+                black = words.word(Stone.BLACK, p >>> 6);
+                white = words.word(Stone.WHITE, p >>> 6);
+            }
+            long b = black >>> p;
+            long w = white >>> p;
+            acc |= (int) ((b & 1) | (w & 1) << 1) << shift;
+            shift += 2;
+            if (shift == 8) {
+                out.put((byte) acc);
+                acc = 0;
+                shift = 0;
+            }
+        }
+        if (shift != 0) out.put((byte) acc);
+    }
+
+    /** Zapis planszy jako nowa tablica bajtów. */
+    public static byte[] encode(Board board) {
+        ByteBuffer buf = ByteBuffer.allocate(encodedLength(board.getWidth(), board.getHeight()));
+        encode(board, buf);
+        return buf.array();
+    }
+
+    /** Zapis snapshotu jako nowa tablica bajtów. */
+    public static byte[] encode(BoardSnapshot snapshot) {
+        ByteBuffer buf = ByteBuffer.allocate(encodedLength(snapshot.getWidth(), snapshot.getHeight()));
+        encode(snapshot, buf);
+        return buf.array();
+    }
+
+    /** Odczytuje nową planszę z bufora (od bieżącej pozycji). */
+    public static Board decode(ByteBuffer in) {
+        int width = in.get(in.position()) & 0xFF;
+        int height = in.get(in.position() + 1) & 0xFF;
+        Board board = new Board(width, height);
+        decodeInto(in, board);
+        return board;
+    }
+
+    /**
+     * Nadpisuje kamienie planszy zapisem z bufora (bez tworzenia nowej planszy).
+     *
+     * @throws IllegalArgumentException gdy rozmiar zapisu nie zgadza się z planszą
+     *         albo zapis zawiera niepoprawny kod punktu
+     */
+    public static void decodeInto(ByteBuffer in, Board board) {
+        int width = in.get() & 0xFF;
+        int height = in.get() & 0xFF;
+        if (width != board.getWidth() || height != board.getHeight()) {
+            throw new IllegalArgumentException("Board size mismatch: " + width + "x" + height + " != " + board.dimensions());
+        }
+        int n = board.getPointCount();
+        long[] black = board.words(Stone.BLACK);
+        long[] white = board.words(Stone.WHITE);
+        Arrays.fill(black, 0L);
+        Arrays.fill(white, 0L);
+        int acc = 0;
+        for (int p = 0; p < n; p++) {
+            if ((p & 3) == 0) acc = in.get() & 0xFF;
+            int code = (acc >>> ((p & 3) << 1)) & 3;
+            if (code == 1) black[p >>> 6] |= 1L << p;
+            else if (code == 2) white[p >>> 6] |= 1L << p;
+            else if (code == 3) throw new IllegalArgumentException("Bad point code at " + p);
+        }
+        board.wordsChanged();
+    }
+
+    /** Zapis planszy w base64 - jedna linia protokołu tekstowego. */
+    public static String toBase64(Board board) {
+        return Base64.getEncoder().encodeToString(encode(board));
+    }
+
+    public static String toBase64(BoardSnapshot snapshot) {
+        return Base64.getEncoder().encodeToString(encode(snapshot));
+    }
+
+    public static Board fromBase64(String text) {
+        return decode(ByteBuffer.wrap(Base64.getDecoder().decode(text)));
+    }
+
+    /** Nadpisuje kamienie planszy zapisem base64. */
+    public static void decodeBase64Into(String text, Board board) {
+        decodeInto(ByteBuffer.wrap(Base64.getDecoder().decode(text)), board);
+    }
+
+    /**
+     * Dekoduje zapis base64 do planszy {@code reuse}, gdy wymiary się zgadzają;
+     * w przeciwnym razie zwraca nową planszę o wymiarach z nagłówka.
+     */
+    public static Board decodeBase64Reusing(String text, Board reuse) {
+        return decodeReusing(ByteBuffer.wrap(Base64.getDecoder().decode(text)), reuse);
+    }
+
+    /** Jak {@link #decodeBase64Reusing}, ale z bufora (od bieżącej pozycji). */
+    public static Board decodeReusing(ByteBuffer in, Board reuse) {
+        int width = in.get(in.position()) & 0xFF;
+        int height = in.get(in.position() + 1) & 0xFF;
+        if (reuse == null || width != reuse.getWidth() || height != reuse.getHeight()) return decode(in);
+        decodeInto(in, reuse);
+        return reuse;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.model;
+
+/**
+ * Niemutowalny stan planszy (układ kamieni) z danej chwili partii.
+ *
+ * Plansza podzielona jest na fragmenty po 64 punkty (jedno słowo bitboardu na kolor).
+ * Snapshot po ruchu tworzony jest przez {@link #next}: niezmienione fragmenty są
+ * współdzielone z poprzednikiem, a kopiowana jest tylko tablica referencji i
+ * fragmenty, których dotknął ruch (zwykle jeden lub dwa). Historia snapshotów
+ * całej partii zajmuje więc ułamek pamięci pełnych kopii planszy, a słuchacze
+ * mogą przechowywać snapshoty bez kopiowania.
+ */
+public final class BoardSnapshot {
+    private final int width;
+    private final int height;
+    private final Chunk[] chunks;
+    private final long hash;
+
+    private BoardSnapshot(int width, int height, Chunk[] chunks, long hash) {
+        this.width = width;
+        this.height = height;
+        this.chunks = chunks;
+        this.hash = hash;
+    }
+
+    /** Pełny snapshot planszy. */
+    public static BoardSnapshot of(Board board) {
+        Chunk[] chunks = new Chunk[board.wordCount()];
+        for (int w = 0; w < chunks.length; w++) {
+            chunks[w] = new Chunk(board.stoneWord(Stone.BLACK, w), board.stoneWord(Stone.WHITE, w));
+        }
+        return new BoardSnapshot(board.getWidth(), board.getHeight(), chunks, board.hash());
+    }
+
+    /**
+     * Snapshot planszy po zmianach względem tego snapshotu. Fragmenty bez zmian
+     * są współdzielone; gdy nic się nie zmieniło, zwraca {@code this}.
+     */
+    public BoardSnapshot next(Board board) {
+        if (board.getWidth() != width || board.getHeight() != height) {
+            throw new IllegalArgumentException("Board size mismatch: " + board.dimensions() + " != " + width + "x" + height);
+        }
+        Chunk[] copy = null;
+        for (int w = 0; w < chunks.length; w++) {
+            long b = board.stoneWord(Stone.BLACK, w);
+            long wh = board.stoneWord(Stone.WHITE, w);
+            if (chunks[w].black == b && chunks[w].white == wh) continue;
+            if (copy == null) copy = chunks.clone();
+            copy[w] = new Chunk(b, wh);
+        }
+        return copy == null ? this : new BoardSnapshot(width, height, copy, board.hash());
+    }
+
+    /** Bok planszy kwadratowej; dla prostokątnej - szerokość. */
+    public int getSize() {
+        return width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPointCount() {
+        return width * height;
+    }
+
+    /** Hash Zobrista układu kamieni (jak {@link Board#hash()}). */
+    public long hash() {
+        return hash;
+    }
+
+    public Stone get(int x, int y) {
+        return stoneAt(y * width + x);
+    }
+
+    public Stone stoneAt(int p) {
+        Chunk c = chunks[p >>> 6];
+        long bit = 1L << p;
+        if ((c.black & bit) != 0) return Stone.BLACK;
+        if ((c.white & bit) != 0) return Stone.WHITE;
+        return Stone.EMPTY;
+    }
+
+    public int wordCount() {
+        return chunks.length;
+    }
+
+    /** Słowo w bitboardu kamieni koloru s. */
+    public long stoneWord(Stone s, int w) {
+        return s == Stone.BLACK ? chunks[w].black : s == Stone.WHITE ? chunks[w].white : 0L;
+    }
+
+    /** Liczba fragmentów współdzielonych (ten sam obiekt) z innym snapshotem. */
+    public int sharedChunks(BoardSnapshot other) {
+        int n = 0;
+        for (int w = 0; w < Math.min(chunks.length, other.chunks.length); w++) {
+            if (chunks[w] == other.chunks[w]) n++;
+        }
+        return n;
+    }
+
+    /** Nowa, modyfikowalna plansza z tym układem kamieni. */
+    public Board toBoard() {
+        Board board = new Board(width, height);
+        long[] black = board.words(Stone.BLACK);
+        long[] white = board.words(Stone.WHITE);
+        for (int w = 0; w < chunks.length; w++) {
+            black[w] = chunks[w].black;
+            white[w] = chunks[w].white;
+        }
+        board.wordsChanged();
+        return board;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder((width + 1) * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Stone s = get(x, y);
+                sb.append(s == Stone.BLACK ? 'B' : s == Stone.WHITE ? 'W' : '.');
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    // 64 punkty: słowo czarnych i słowo białych
+    private static final class Chunk {
+        final long black;
+        final long white;
+
+        Chunk(long black, long white) {
+            this.black = black;
+            this.white = white;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.model;
+
+import java.util.Arrays;
+
+/**
+ * Przyrostowo utrzymywany podział kamieni planszy na łańcuchy (grupy).
+ *
+ * Union-find po indeksach punktów: przy dokładaniu kamienia łańcuchy sąsiadów tego
+ * samego koloru są łączone, a listy kamieni (cykliczne, w tablicy {@code next})
+ * sklejane w O(1). Zdjęcie kamienia rozbija łańcuch, więc wtedy przebudowywany jest
+ * tylko ten jeden łańcuch.
+ *
+ * Korzeń łańcucha trzyma liczbę kamieni i liczbę pseudo-oddechów: każda para
+ * (kamień, pusty sąsiad) liczy się osobno. Pseudo-oddechów jest zero wtedy i tylko
+ * wtedy, gdy łańcuch nie ma żadnego oddechu — to wystarcza do sprawdzania bicia
+ * i samobójstwa.
+ */
+final class Chains {
+    private final Board board;
+    private final int width;
+    private final NeighbourTable nt;
+    private final int[] parent;
+    private final int[] next;
+    private final int[] stones;
+    private final int[] libs;
+    // pozostałe kamienie łańcucha w removed() - bez tablicy na każde zdjęcie kamienia
+    private final int[] scratch;
+
+    Chains(Board board) {
+        this.board = board;
+        this.width = board.getWidth();
+        this.nt = board.neighbours();
+        int n = board.getPointCount();
+        this.parent = new int[n];
+        this.next = new int[n];
+        this.stones = new int[n];
+        this.libs = new int[n];
+        this.scratch = new int[n];
+        rebuild();
+    }
+
+    private Chains(Board board, Chains src) {
+        this.board = board;
+        this.width = src.width;
+        this.nt = src.nt;
+        this.parent = src.parent.clone();
+        this.next = src.next.clone();
+        this.stones = src.stones.clone();
+        this.libs = src.libs.clone();
+        this.scratch = new int[src.scratch.length];
+    }
+
+    /** Kopia struktury dla sklonowanej planszy. */
+    Chains copyFor(Board b) {
+        return new Chains(b, this);
+    }
+
+    /** Buduje wszystkie łańcuchy od zera. */
+    private void rebuild() {
+        Arrays.fill(parent, -1);
+        int n = parent.length;
+        for (int p = 0; p < n; p++) {
+            if (board.stoneAt(p) != Stone.EMPTY) initStone(p);
+        }
+        for (int p = 0; p < n; p++) {
+            Stone c = board.stoneAt(p);
+            if (c == Stone.EMPTY) continue;
+            // wystarczy łączyć z sąsiadem z lewej i z góry
+            if (p % width > 0 && board.stoneAt(p - 1) == c) union(p, p - 1);
+            if (p >= width && board.stoneAt(p - width) == c) union(p, p - width);
+        }
+    }
+
+    // pojedynczy kamień jako osobny łańcuch
+    private void initStone(int p) {
+        parent[p] = p;
+        next[p] = p;
+        stones[p] = 1;
+        int l = 0;
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            int q = nt.neighbour(p, k);
+            if (board.stoneAt(q) == Stone.EMPTY) l++;
+        }
+        libs[p] = l;
+    }
+
+    int find(int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    private void union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) return;
+        if (stones[ra] < stones[rb]) {
+            int t = ra; ra = rb; rb = t;
+        }
+        parent[rb] = ra;
+        stones[ra] += stones[rb];
+        libs[ra] += libs[rb];
+        // sklejenie dwóch list cyklicznych
+        int t = next[ra];
+        next[ra] = next[rb];
+        next[rb] = t;
+    }
+
+    /** Kamień właśnie pojawił się na pustym punkcie p (plansza jest już zaktualizowana). */
+    void placed(int p) {
+        parent[p] = p;
+        next[p] = p;
+        stones[p] = 1;
+        libs[p] = 0;
+        Stone c = board.stoneAt(p);
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            int q = nt.neighbour(p, k);
+            Stone s = board.stoneAt(q);
+            if (s == Stone.EMPTY) {
+                libs[p]++;
+            } else {
+                // sąsiedni kamień traci oddech w punkcie p
+                libs[find(q)]--;
+            }
+        }
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            int q = nt.neighbour(p, k);
+            if (board.stoneAt(q) == c) union(p, q);
+        }
+    }
+
+    /**
+     * Kamień koloru {@code color} zniknął z punktu p (plansza jest już zaktualizowana).
+     * Pozostałe kamienie jego łańcucha tworzą łańcuchy od nowa.
+     */
+    void removed(int p, Stone color) {
+        // zbierz pozostałe kamienie łańcucha, zanim lista zostanie nadpisana
+        int[] rest = scratch;
+        int n = 0;
+        int s = p;
+        do {
+            if (s != p) rest[n++] = s;
+            s = next[s];
+        } while (s != p);
+        parent[p] = -1;
+
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            int q = nt.neighbour(p, k);
+            if (board.stoneAt(q) != Stone.EMPTY && board.stoneAt(q) != color) {
+                libs[find(q)]++;
+            }
+        }
+        for (int i = 0; i < n; i++) initStone(rest[i]);
+        for (int i = 0; i < n; i++) {
+            int a = rest[i];
+            for (int k = 0, d = nt.degree(a); k < d; k++) {
+                int q = nt.neighbour(a, k);
+                if (parent[q] >= 0 && board.stoneAt(q) == color) union(a, q);
+            }
+        }
+    }
+
+    /**
+     * Zdejmowany jest cały łańcuch zawierający p (bicie). Sąsiednie łańcuchy
+     * odzyskują oddechy. Wywoływane przed wyczyszczeniem bitów planszy.
+     *
+     * @param out tablica na indeksy zdjętych kamieni
+     * @param from pozycja w {@code out}, od której wpisywać
+     * @return liczba zdjętych kamieni
+     */
+    int removeChain(int p, int[] out, int from) {
+        Stone color = board.stoneAt(p);
+        int n = from;
+        int s = p;
+        do {
+            out[n++] = s;
+            s = next[s];
+        } while (s != p);
+        for (int i = from; i < n; i++) parent[out[i]] = -1;
+        for (int i = from; i < n; i++) {
+            int a = out[i];
+            for (int k = 0, d = nt.degree(a); k < d; k++) {
+                int q = nt.neighbour(a, k);
+                Stone c = board.stoneAt(q);
+                if (c != Stone.EMPTY && c != color) libs[find(q)]++;
+            }
+        }
+        return n - from;
+    }
+
+    /** XOR kluczy Zobrista wszystkich kamieni łańcucha punktu p. */
+    long chainKey(int p) {
+        Stone color = board.stoneAt(p);
+        long h = 0L;
+        int s = p;
+        do {
+            h ^= Zobrist.key(s, color);
+            s = next[s];
+        } while (s != p);
+        return h;
+    }
+
+    /**
+     * Ile razy łańcuch o korzeniu {@code root} sąsiaduje z pustym punktem p.
+     * Tyle pseudo-oddechów łańcuch straci, gdy p zostanie zajęty.
+     */
+    int adjacency(int root, int p) {
+        int a = 0;
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            int q = nt.neighbour(p, k);
+            if (parent[q] >= 0 && find(q) == root) a++;
+        }
+        return a;
+    }
+
+    int chainSize(int p) {
+        return stones[find(p)];
+    }
+
+    int pseudoLiberties(int p) {
+        return libs[find(p)];
+    }
+
+    /** Wpisuje kamienie łańcucha punktu p do {@code out}, zwraca ich liczbę. */
+    int chainStones(int p, int[] out) {
+        int n = 0;
+        int s = p;
+        do {
+            out[n++] = s;
+            s = next[s];
+        } while (s != p);
+        return n;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.model;
+
+import java.util.Arrays;
+
+/**
+ * Historia partii jako dopisywany log zdarzeń z okresowymi klatkami kluczowymi.
+ *
+ * Zdarzenie to jeden {@code int}: ruch i pas w postaci {@link PackedMove}, a oznaczenie
+ * grupy, wznowienie gry i zakończenie liczenia z rodzajem w bitach 19-21 (punkt i kolor
+ * jak w {@link PackedMove}). Co {@link #DEFAULT_INTERVAL} zdarzeń zapisywana jest klatka:
+ * {@link BoardSnapshot} (współdzieli fragmenty z bieżącym snapshotem gry) i maska martwych
+ * kamieni, jeśli są oznaczenia.
+ *
+ * Stan po dowolnej liczbie zdarzeń odtwarzany jest od najbliższej wcześniejszej klatki
+ * (wybór klatki w O(1)) przez odegranie najwyżej {@code interval - 1} zdarzeń metodą
+ * {@link Board#play}, bez ponownego sprawdzania reguł. Log kosztuje 4 bajty na zdarzenie
+ * i 4 bajty na ruch w indeksie ruchów, klatki - kilka bajtów na zdarzenie w przeliczeniu.
+ */
+public final class GameHistory {
+    /** Domyślny odstęp między klatkami kluczowymi (w zdarzeniach). */
+    public static final int DEFAULT_INTERVAL = 32;
+
+    private static final int KIND_SHIFT = 19;
+    private static final int KIND_MASK = 7 << KIND_SHIFT;
+    /** Rodzaj zdarzenia: oznaczenie grupy jako martwej. */
+    public static final int MARK_DEAD = 1 << KIND_SHIFT;
+    /** Rodzaj zdarzenia: oznaczenie grupy jako żywej. */
+    public static final int MARK_ALIVE = 2 << KIND_SHIFT;
+    /** Rodzaj zdarzenia: wznowienie gry (kolor - gracz na ruchu); czyści oznaczenia. */
+    public static final int RESUME = 3 << KIND_SHIFT;
+    /** Rodzaj zdarzenia: zakończenie liczenia - zdjęcie martwych kamieni. */
+    public static final int FINISH = 4 << KIND_SHIFT;
+
+    private final int width;
+    private final int height;
+    private final int interval;
+    private final MoveList events = new MoveList();
+    // indeksy zdarzeń będących ruchami lub pasami
+    private final MoveList moveEvents = new MoveList();
+    private BoardSnapshot[] keyframes = new BoardSnapshot[8];
+    private long[][] keyDead = new long[8][];
+
+    public GameHistory(BoardSnapshot start) {
+        this(start, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @param start stan planszy przed pierwszym zdarzeniem
+     * @param interval odstęp między klatkami kluczowymi
+     */
+    public GameHistory(BoardSnapshot start, int interval) {
+        if (interval < 1) throw new IllegalArgumentException("Interval must be positive: " + interval);
+        this.width = start.getWidth();
+        this.height = start.getHeight();
+        this.interval = interval;
+        this.keyframes[0] = start;
+    }
+
+    /** Zdarzenie oznaczenia grupy zawierającej punkt. */
+    public static int mark(int point, boolean dead) {
+        return (dead ? MARK_DEAD : MARK_ALIVE) | point;
+    }
+
+    /** Zdarzenie wznowienia gry; {@code next} zaczyna. */
+    public static int resume(Stone next) {
+        return RESUME | PackedMove.move(0, next);
+    }
+
+    public static int finish() {
+        return FINISH;
+    }
+
+    /** Rodzaj zdarzenia: 0 dla ruchu i pasa, inaczej jedna ze stałych tej klasy. */
+    public static int kind(int event) {
+        return event & KIND_MASK;
+    }
+
+    /**
+     * Dopisuje zdarzenie. {@code snapshot} i {@code board} opisują stan już po zdarzeniu;
+     * są odczytywane tylko, gdy wypada klatka kluczowa.
+     */
+    public void append(int event, BoardSnapshot snapshot, Board board) {
+        if (kind(event) == 0) moveEvents.add(events.size());
+        events.add(event);
+        int n = events.size();
+        if (n % interval != 0) return;
+        int k = n / interval;
+        if (k == keyframes.length) {
+            keyframes = Arrays.copyOf(keyframes, k * 2);
+            keyDead = Arrays.copyOf(keyDead, k * 2);
+        }
+        keyframes[k] = snapshot;
+        keyDead[k] = board.hasDeadMarks() ? board.deadMask() : null;
+    }
+
+    /** Liczba zdarzeń. */
+    public int size() {
+        return events.size();
+    }
+
+    public int get(int i) {
+        return events.get(i);
+    }
+
+    /** Liczba ruchów i pasów. */
+    public int moveCount() {
+        return moveEvents.size();
+    }
+
+    /** i-ty ruch lub pas w postaci {@link PackedMove}. */
+    public int move(int i) {
+        return events.get(moveEvents.get(i));
+    }
+
+    /** Plansza po pierwszych {@code n} zdarzeniach (0 - stan początkowy). */
+    public Board boardAt(int n) {
+        if (n < 0 || n > events.size()) {
+            throw new IndexOutOfBoundsException("Event: " + n + ", size: " + events.size());
+        }
+        int k = n / interval;
+        Board board = keyframes[k].toBoard();
+        if (keyDead[k] != null) System.arraycopy(keyDead[k], 0, board.deadWords(), 0, keyDead[k].length);
+        for (int i = k * interval; i < n; i++) {
+            replay(board, events.get(i));
+        }
+        return board;
+    }
+
+    /** Plansza po pierwszych {@code m} ruchach (z pasami) i zdarzeniach między nimi. */
+    public Board boardAtMove(int m) {
+        if (m < 0 || m > moveEvents.size()) {
+            throw new IndexOutOfBoundsException("Move: " + m + ", size: " + moveEvents.size());
+        }
+        return boardAt(m == 0 ? 0 : moveEvents.get(m - 1) + 1);
+    }
+
+    private void replay(Board board, int event) {
+        int p = PackedMove.point(event);
+        switch (kind(event)) {
+            case 0:
+                if (!PackedMove.isPass(event)) board.play(p % width, p / width, PackedMove.color(event));
+                break;
+            case MARK_DEAD:
+            case MARK_ALIVE:
+                board.markGroup(p % width, p / width, kind(event) == MARK_DEAD);
+                break;
+            case RESUME:
+                board.clearDeadMarks();
+                break;
+            case FINISH:
+                board.removeStones(board.deadMask());
+                break;
+            default:
+                throw new IllegalStateException("Unknown event: " + event);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
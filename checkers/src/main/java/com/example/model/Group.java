@@ -1,17 +1,28 @@
 package com.example.model;
-import java.util.HashSet;
-import java.util.Set;
 
+/**
+ * Grupa (łańcuch) kamieni z oddechami.
+ *
+ * Kamienie i oddechy trzymane są jako bitsety punktów ({@link PointSet}), więc grupa
+ * zajmuje stałą liczbę obiektów niezależnie od liczby kamieni; pozycje tworzone są
+ * dopiero przy iteracji.
+ */
 public class Group {
     public final Stone color;
-    public final Set<Position> stones = new HashSet<>();
-    public final Set<Position> liberties = new HashSet<>();
+    public final PointSet stones;
+    public final PointSet liberties;
 
     // czy grupa jest martwa 
     private boolean dead = false;
 
-    public Group(Stone color) {
+    public Group(Stone color, int boardSize) {
+        this(color, boardSize, boardSize);
+    }
+
+    public Group(Stone color, int width, int height) {
         this.color = color;
+        this.stones = new PointSet(width, height);
+        this.liberties = new PointSet(width, height);
     }
 
     // Ustawianie statusu grupy 
@@ -1,56 +1,134 @@
 package com.example.model;
-import java.util.ArrayDeque; 
-import java.util.Deque; 
 
+import java.util.Arrays;
+
+/**
+ * Wyszukiwanie grupy (łańcucha) kamieni flood-fillem.
+ *
+ * Obiekt jest wielokrotnego użytku: odwiedzone punkty oznacza numerem pokolenia
+ * w tablicy {@code int[]} (zamiast czyszczenia tablicy wystarczy zwiększyć licznik),
+ * stos jest tablicą indeksów, a {@link #scan} zwraca zawsze ten sam obiekt
+ * {@link Result}. Kolejne wyszukiwania nie alokują pamięci.
+ */
 public class GroupFinder {
     private final Board board;
-    
+    private final NeighbourTable nt;
+    private final int[] stamp;
+    private final int[] stack;
+    private final Result result;
+    private int generation = 0;
+
     public GroupFinder(Board board) {
         this.board = board;
+        this.nt = board.neighbours();
+        int n = board.getPointCount();
+        this.stamp = new int[n];
+        this.stack = new int[n];
+        this.result = new Result(n);
     }
 
+    /**
+     * Znajduje grupę kamienia (x, y) i zwraca ją jako nowy obiekt {@link Group}
+     * (bitsety punktów - stała liczba alokacji niezależnie od wielkości grupy).
+     *
+     * @return grupa albo null dla pustego pola
+     */
     public Group findGroup(int x, int y) {
-        Stone color = board.get(x, y);
-        if (color == Stone.EMPTY) {
+        Result r = scan(x, y);
+        if (r.getColor() == Stone.EMPTY) {
             return null;
         }
 
-        Group group = new Group(color);
-        boolean[][] visited = new boolean[board.getSize()][board.getSize()];
-
-        Deque<Position> stack = new ArrayDeque<>();
-        stack.push(new Position(x, y));
+        Group group = new Group(r.getColor(), board.getWidth(), board.getHeight());
+        for (int i = 0; i < r.getStoneCount(); i++) {
+            group.stones.add(r.getStone(i));
+        }
+        for (int i = 0; i < r.getLibertyCount(); i++) {
+            group.liberties.add(r.getLiberty(i));
+        }
+        return group;
+    }
 
-        int[][] dirs = {{1,0}, {-1, 0}, {0,1}, {0,-1}};
-        
-        while (!stack.isEmpty()) {
-            Position p = stack.pop();
-            int px = p.x;
-            int py = p.y;
+    /**
+     * Znajduje grupę kamienia (x, y) bez alokacji.
+     *
+     * Zwrócony obiekt jest współdzielony i nadpisywany przy następnym wywołaniu.
+     * Dla pustego pola wynik ma kolor EMPTY i zero kamieni.
+     */
+    public Result scan(int x, int y) {
+        Result r = result;
+        r.reset();
+        int start = board.index(x, y);
+        Stone color = board.stoneAt(start);
+        if (color == Stone.EMPTY) {
+            return r;
+        }
+        r.color = color;
 
-            if (visited[py][px]) {
-                continue;
-            }
-            visited[py][px] = true;
-            group.stones.add(p);
+        int gen = nextGeneration();
+        int top = 0;
+        stack[top++] = start;
+        stamp[start] = gen;
 
-            for (int[] d : dirs) {
-                int nx = px + d[0];
-                int ny = py + d[1];
+        while (top > 0) {
+            int p = stack[--top];
+            r.stones[r.stoneCount++] = p;
 
-                if (!board.isOnBoard(nx, ny)) {
+            for (int k = 0, d = nt.degree(p); k < d; k++) {
+                int q = nt.neighbour(p, k);
+                if (stamp[q] == gen) {
                     continue;
                 }
-                Stone s = board.get(nx, ny);
+                Stone s = board.stoneAt(q);
+                // kamienie i oddechy to rozłączne zbiory punktów - wystarczy jedno oznaczenie
                 if (s == Stone.EMPTY) {
-                    group.liberties.add(new Position(nx, ny));
+                    stamp[q] = gen;
+                    r.liberties[r.libertyCount++] = q;
                 }
-                else if (s == color && !visited[ny][nx]) {
-                    stack.push(new Position(nx, ny));
+                else if (s == color) {
+                    stamp[q] = gen;
+                    stack[top++] = q;
                 }
             }
 
         }
-        return group;
+        return r;
+    }
+
+    private int nextGeneration() {
+        if (++generation == 0) {
+            // po przepełnieniu licznika stare znaczniki mogłyby się powtórzyć
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        return generation;
+    }
+
+    /**
+     * Wynik {@link #scan}: indeksy kamieni i oddechów grupy. Obiekt wielokrotnego użytku.
+     */
+    public static final class Result {
+        private Stone color = Stone.EMPTY;
+        private final int[] stones;
+        private final int[] liberties;
+        private int stoneCount;
+        private int libertyCount;
+
+        private Result(int points) {
+            this.stones = new int[points];
+            this.liberties = new int[points];
+        }
+
+        void reset() {
+            color = Stone.EMPTY;
+            stoneCount = 0;
+            libertyCount = 0;
+        }
+
+        public Stone getColor() { return color; }
+        public int getStoneCount() { return stoneCount; }
+        public int getStone(int i) { return stones[i]; }
+        public int getLibertyCount() { return libertyCount; }
+        public int getLiberty(int i) { return liberties[i]; }
     }
 }
@@ -31,6 +31,22 @@ public class Move {
         return pos.getY();
     }
 
+    /** Ruch w postaci {@link PackedMove} dla planszy o danej szerokości. */
+    public int toPacked(int width, Stone color) {
+        if (type == MoveType.PASS) return PackedMove.pass(color);
+        return PackedMove.move(pos.y * width + pos.x, color);
+    }
+
+    /** Ruch z postaci {@link PackedMove}; pozycja jest kanonicznym obiektem {@link PositionTable}. */
+    public static Move fromPacked(int move, int size, String playerId) {
+        return fromPacked(move, size, size, playerId);
+    }
+
+    public static Move fromPacked(int move, int width, int height, String playerId) {
+        if (PackedMove.isPass(move)) return new Move(MoveType.PASS, null, playerId);
+        return new Move(MoveType.MOVE, PositionTable.forSize(width, height).at(PackedMove.point(move)), playerId);
+    }
+
     public static Move parse(String line, String playerId) {
         // np. MOVE 3 4
         String[] parts = line.trim().split("\\s+");
@@ -0,0 +1,47 @@
+package com.example.model;
+
+import java.util.Arrays;
+
+/**
+ * Rosnąca lista ruchów zakodowanych przez {@link PackedMove} w tablicy {@code int[]}
+ * (bez obiektów na ruch).
+ */
+public final class MoveList {
+    private int[] moves;
+    private int size = 0;
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[Math.max(1, capacity)];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+        moves[size++] = move;
+    }
+
+    public int get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+        return moves[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Kopia ruchów jako tablica. */
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+}
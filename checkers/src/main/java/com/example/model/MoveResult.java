@@ -10,22 +10,29 @@ public final class MoveResult {
     private final String errorMessage;
     private final List<Position> captures;
     private final Board boardSnapshot;
+    private final Board.Undo undo;
 
-    private MoveResult(boolean ok, String errorMessage, List<Position> captures, Board boardSnapshot) {
+    private MoveResult(boolean ok, String errorMessage, List<Position> captures, Board boardSnapshot, Board.Undo undo) {
         this.ok = ok;
         this.errorMessage = errorMessage;
         this.captures = captures;
         this.boardSnapshot = boardSnapshot;
+        this.undo = undo;
     }
 
     //fabryka dla bledu
     public static MoveResult error(String message) {
-        return new MoveResult(false, message, Collections.emptyList(), null);
+        return new MoveResult(false, message, Collections.emptyList(), null, null);
     }
 
     //fabryka dla poprawnego ruchu
     public static MoveResult ok(List<Position> captures, Board snapshot) {
-        return new MoveResult(true, null, captures, snapshot);
+        return new MoveResult(true, null, captures, snapshot, null);
+    }
+
+    //fabryka dla ruchu wykonanego w miejscu - z rekordem pozwalającym go cofnąć
+    public static MoveResult ok(List<Position> captures, Board board, Board.Undo undo) {
+        return new MoveResult(true, null, captures, board, undo);
     }
 
     public boolean isOk() {
@@ -44,6 +51,11 @@ public final class MoveResult {
         return boardSnapshot;
     }
 
+    /** Rekord cofnięcia ruchu albo null (błąd lub wynik bez cofania). */
+    public Board.Undo getUndo() {
+        return undo;
+    }
+
     @Override
     public String toString() {
         if (!ok) {
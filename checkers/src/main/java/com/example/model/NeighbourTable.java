@@ -0,0 +1,75 @@
+package com.example.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stała tablica sąsiadów punktów dla danych wymiarów planszy.
+ *
+ * Każdy punkt ma cztery pola w płaskiej tablicy {@code int[]}: najpierw prawdziwi
+ * sąsiedzi, potem wartownik {@link #BORDER} w miejscu krawędzi. Tablice są
+ * niemutowalne i współdzielone przez wszystkie plansze o tych samych wymiarach,
+ * więc iteracja po sąsiadach nic nie alokuje:
+ *
+ * <pre>
+ * for (int k = 0, d = t.degree(p); k &lt; d; k++) { int q = t.neighbour(p, k); ... }
+ * </pre>
+ */
+public final class NeighbourTable {
+    /** Wartownik oznaczający brak sąsiada (krawędź planszy). */
+    public static final int BORDER = -1;
+
+    private static final ConcurrentMap<Integer, NeighbourTable> CACHE = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int height;
+    private final int[] table;
+    private final byte[] degree;
+
+    private NeighbourTable(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int n = width * height;
+        this.table = new int[n * 4];
+        this.degree = new byte[n];
+        for (int p = 0; p < n; p++) {
+            int x = p % width;
+            int y = p / width;
+            int d = 0;
+            if (x > 0) table[p * 4 + d++] = p - 1;
+            if (x < width - 1) table[p * 4 + d++] = p + 1;
+            if (y > 0) table[p * 4 + d++] = p - width;
+            if (y < height - 1) table[p * 4 + d++] = p + width;
+            degree[p] = (byte) d;
+            for (int k = d; k < 4; k++) table[p * 4 + k] = BORDER;
+        }
+    }
+
+    /** Tablica dla planszy size x size (liczona raz na rozmiar). */
+    public static NeighbourTable forSize(int size) {
+        return forSize(size, size);
+    }
+
+    /** Tablica dla planszy width x height (liczona raz na wymiary). */
+    public static NeighbourTable forSize(int width, int height) {
+        return CACHE.computeIfAbsent((width << 8) | height, k -> new NeighbourTable(width, height));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Liczba sąsiadów punktu p (2 w rogu, 3 na krawędzi, 4 w środku). */
+    public int degree(int p) {
+        return degree[p];
+    }
+
+    /** k-ty sąsiad punktu p (0..3); dla k &gt;= degree(p) zwraca {@link #BORDER}. */
+    public int neighbour(int p, int k) {
+        return table[(p << 2) + k];
+    }
+}
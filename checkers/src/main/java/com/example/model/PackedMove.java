@@ -0,0 +1,57 @@
+package com.example.model;
+
+/**
+ * Ruch zakodowany w jednym {@code int}: indeks punktu, typ i kolor.
+ *
+ * Bity 0-15 - indeks punktu ({@code y * width + x}), bity 16-17 - kolor
+ * (0 brak, 1 czarny, 2 biały), bit 18 - PASS. Pozwala przekazywać i przechowywać
+ * ruchy bez obiektów {@link Move} i {@link Position} (zob. {@link MoveList}).
+ */
+public final class PackedMove {
+    private static final int POINT_MASK = 0xFFFF;
+    private static final int COLOR_SHIFT = 16;
+    private static final int PASS_BIT = 1 << 18;
+
+    private PackedMove() {}
+
+    /** Kamień koloru {@code color} na punkcie o indeksie {@code point}. */
+    public static int move(int point, Stone color) {
+        return point | colorBits(color) << COLOR_SHIFT;
+    }
+
+    public static int pass(Stone color) {
+        return PASS_BIT | colorBits(color) << COLOR_SHIFT;
+    }
+
+    public static boolean isPass(int move) {
+        return (move & PASS_BIT) != 0;
+    }
+
+    public static MoveType type(int move) {
+        return isPass(move) ? MoveType.PASS : MoveType.MOVE;
+    }
+
+    /** Indeks punktu ruchu (dla PASS - 0). */
+    public static int point(int move) {
+        return move & POINT_MASK;
+    }
+
+    public static Stone color(int move) {
+        switch ((move >>> COLOR_SHIFT) & 3) {
+            case 1: return Stone.BLACK;
+            case 2: return Stone.WHITE;
+            default: return Stone.EMPTY;
+        }
+    }
+
+    /** Ruch tekstowy {@code MOVE x y} / {@code PASS} dla planszy o danej szerokości. */
+    public static String toString(int move, int width) {
+        if (isPass(move)) return "PASS";
+        int p = point(move);
+        return "MOVE " + (p % width) + " " + (p / width);
+    }
+
+    private static int colorBits(Stone color) {
+        return color == Stone.BLACK ? 1 : color == Stone.WHITE ? 2 : 0;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Zbiór punktów planszy jako bitset indeksów ({@code y * width + x}).
+ *
+ * Dla zgodności z dotychczasowym API jest widokiem {@code Set<Position>}: iteracja
+ * zwraca kanoniczne obiekty z {@link PositionTable}, a {@code contains}/{@code add}
+ * przeliczają pozycję na indeks. Kod korzystający z indeksów używa metod
+ * {@link #contains(int)}, {@link #add(int)}, {@link #next(int)} i {@link #toIndexArray()},
+ * które nic nie alokują (poza wynikową tablicą).
+ */
+public final class PointSet extends AbstractSet<Position> {
+    private final int width;
+    private final int height;
+    private final PositionTable positions;
+    private final long[] bits;
+    private int count = 0;
+
+    public PointSet(int boardSize) {
+        this(boardSize, boardSize);
+    }
+
+    public PointSet(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.positions = PositionTable.forSize(width, height);
+        this.bits = new long[(width * height + 63) >>> 6];
+    }
+
+    /** Bok planszy kwadratowej; dla prostokątnej - szerokość. */
+    public int boardSize() {
+        return width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean contains(int p) {
+        return (bits[p >>> 6] & (1L << p)) != 0;
+    }
+
+    /** Dodaje punkt o indeksie p; zwraca true, jeśli go nie było. */
+    public boolean add(int p) {
+        long bit = 1L << p;
+        if ((bits[p >>> 6] & bit) != 0) return false;
+        bits[p >>> 6] |= bit;
+        count++;
+        return true;
+    }
+
+    public boolean remove(int p) {
+        long bit = 1L << p;
+        if ((bits[p >>> 6] & bit) == 0) return false;
+        bits[p >>> 6] &= ~bit;
+        count--;
+        return true;
+    }
+
+    /** Najmniejszy indeks w zbiorze {@code >= from} albo -1. */
+    public int next(int from) {
+        if (from < 0) from = 0;
+        int w = from >>> 6;
+        if (w >= bits.length) return -1;
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == bits.length) return -1;
+            word = bits[w];
+        }
+    }
+
+    /** Indeksy punktów rosnąco. */
+    public int[] toIndexArray() {
+        int[] out = new int[count];
+        int n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                out[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return out;
+    }
+
+    /** Dopisuje punkty zbioru do maski planszy (OR słowo po słowie). */
+    public void orInto(long[] mask) {
+        for (int w = 0; w < bits.length; w++) mask[w] |= bits[w];
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int p = indexOf(o);
+        return p >= 0 && contains(p);
+    }
+
+    @Override
+    public boolean add(Position pos) {
+        int p = indexOf(pos);
+        if (p < 0) throw new IllegalArgumentException("Position outside board: " + pos.x + "," + pos.y);
+        return add(p);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int p = indexOf(o);
+        return p >= 0 && remove(p);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(bits, 0L);
+        count = 0;
+    }
+
+    @Override
+    public Iterator<Position> iterator() {
+        return new Iterator<Position>() {
+            private int nextIndex = PointSet.this.next(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex >= 0;
+            }
+
+            @Override
+            public Position next() {
+                if (nextIndex < 0) throw new NoSuchElementException();
+                last = nextIndex;
+                nextIndex = PointSet.this.next(nextIndex + 1);
+                return positions.at(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) throw new IllegalStateException();
+                PointSet.this.remove(last);
+                last = -1;
+            }
+        };
+    }
+
+    // indeks pozycji albo -1 dla obiektu spoza planszy
+    private int indexOf(Object o) {
+        if (!(o instanceof Position)) return -1;
+        Position pos = (Position) o;
+        if (pos.x < 0 || pos.y < 0 || pos.x >= width || pos.y >= height) return -1;
+        return pos.y * width + pos.x;
+    }
+}
@@ -1,7 +1,5 @@
 package com.example.model;
 
-import java.util.Objects;
-
 public class Position {
     public final int x;
     public final int y;
@@ -18,7 +16,8 @@ public class Position {
     }
 
     public int hashCode() {
-        return Objects.hash(x, y);
+        // bez tablicy varargs i pudełkowania przy każdym wywołaniu
+        return 31 * x + y;
     }
     
     public int getX() {
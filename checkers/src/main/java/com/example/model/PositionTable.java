@@ -0,0 +1,61 @@
+package com.example.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Kanoniczne obiekty {@link Position} dla danych wymiarów planszy.
+ *
+ * Każdy punkt ma jeden niemutowalny obiekt tworzony raz na wymiary, więc widoki
+ * pozycji (sąsiedzi, zbite kamienie, zbiory punktów) nie alokują przy odczycie.
+ * Tablice są współdzielone przez wszystkie plansze o tych samych wymiarach.
+ */
+public final class PositionTable {
+    private static final ConcurrentMap<Integer, PositionTable> CACHE = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int height;
+    private final Position[] positions;
+
+    private PositionTable(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.positions = new Position[width * height];
+        for (int p = 0; p < positions.length; p++) {
+            positions[p] = new Position(p % width, p / width);
+        }
+    }
+
+    /** Tablica dla planszy size x size (tworzona raz na rozmiar). */
+    public static PositionTable forSize(int size) {
+        return forSize(size, size);
+    }
+
+    /** Tablica dla planszy width x height (tworzona raz na wymiary). */
+    public static PositionTable forSize(int width, int height) {
+        return CACHE.computeIfAbsent((width << 8) | height, k -> new PositionTable(width, height));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Pozycja punktu o indeksie {@code y * width + x}. */
+    public Position at(int p) {
+        return positions[p];
+    }
+
+    public Position at(int x, int y) {
+        return positions[y * width + x];
+    }
+
+    /** Kanoniczny obiekt równy {@code pos}, albo {@code pos}, gdy leży poza planszą. */
+    public Position intern(Position pos) {
+        if (pos.x < 0 || pos.y < 0 || pos.x >= width || pos.y >= height) return pos;
+        return positions[pos.y * width + pos.x];
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.model;
+
+/**
+ * Klucze Zobrista dla punktów planszy.
+ *
+ * Klucz pary (punkt, kolor) jest wyliczany funkcją mieszającą SplitMix64, więc nie
+ * trzeba trzymać tablicy dla każdego rozmiaru planszy, a wartości są stałe między
+ * uruchomieniami (ten sam układ ma zawsze ten sam hash).
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private Zobrist() {}
+
+    /**
+     * Klucz kamienia danego koloru na punkcie o indeksie {@code point}.
+     *
+     * @param point indeks punktu
+     * @param s kolor kamienia (dla EMPTY zwraca 0)
+     * @return 64-bitowy klucz
+     */
+    public static long key(int point, Stone s) {
+        if (s == Stone.EMPTY) return 0L;
+        return mix((((long) point) << 1 | (s == Stone.BLACK ? 0 : 1)) + 1);
+    }
+
+    /** Klucz doliczany, gdy ruch należy do białego (dla superko sytuacyjnego). */
+    public static long whiteToMove() {
+        // klucze punktów używają wejść >= 1, więc 0 jest wolne
+        return mix(0L);
+    }
+
+    private static long mix(long z) {
+        z = z * SEED + SEED;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
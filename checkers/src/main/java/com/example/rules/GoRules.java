@@ -2,9 +2,6 @@ package com.example.rules;
 
 import com.example.model.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Implementacja reguł gry GO.
  * 
@@ -12,64 +9,73 @@ import java.util.List;
  * - czy pole jest na planszy i jest puste,
  * - bicie grup przeciwnika,
  * - zakaz samobójstwa,
- * - regułę ko.
+ * - regułę ko (proste ko albo superko, zależnie od {@link KoRule}).
  * 
  * Metoda {@link #applyMove} zwraca MoveResult z informacjami o poprawności ruchu.
+ * Legalność sprawdzana jest bez modyfikowania planszy (pseudo-oddechy łańcuchów
+ * i hash po ruchu), więc odrzucony ruch nic nie alokuje. Legalny ruch wykonywany
+ * jest w miejscu przez {@link Board#play}, a wynik niesie rekord cofnięcia.
  */
 public class GoRules implements Rules {
 
-    private final KoDetector koDetector = new KoDetector(); 
+    // wyniki błędów są niemutowalne, więc mogą być współdzielone
+    private static final MoveResult OFF_BOARD = MoveResult.error("Poza plansza");
+    private static final MoveResult OCCUPIED = MoveResult.error("Pole zajete");
+    private static final MoveResult SUICIDE = MoveResult.error("Samobojstwo");
+    private static final MoveResult KO = MoveResult.error("Ko - niedozwolone powtórzenie pozycji");
+
+    private final KoDetector koDetector;
+
+    public GoRules() {
+        this(KoRule.SIMPLE);
+    }
+
+    public GoRules(KoRule koRule) {
+        this.koDetector = new KoDetector(koRule);
+    }
+
+    public KoRule getKoRule() {
+        return koDetector.getRule();
+    }
 
     @Override
     public MoveResult applyMove(Board board, int x, int y, Stone color) {
-
-        //sprawdzenie legalności pola
-        if (!board.isOnBoard(x, y)) {
-            return MoveResult.error("Poza plansza");
-        }
-        if (board.get(x, y) != Stone.EMPTY) {
-            return MoveResult.error("Pole zajete");
+        MoveResult error = validate(board, x, y, color);
+        if (error != null) {
+            return error;
         }
 
-        //pracujemy na kopii planszy
-        Board copy = board.clone();
-        copy.set(x, y, color);
+        // dodanie do historii
+        koDetector.push(board.hash(), color);
 
-        GroupFinder gf = new GroupFinder(copy);
+        //wykonanie ruchu w miejscu (razem z biciem)
+        Board.Undo undo = board.play(x, y, color);
 
-        //bicie grup przeciwnika
-        List<Position> captures = new ArrayList<>();
+        //zwróć wynik
+        return MoveResult.ok(board.capturedPositions(undo), board, undo);
+    }
 
-        for (Position n : copy.getNeighbours(x, y)) {
-            Stone s = copy.get(n.x, n.y);
-            if (s != Stone.EMPTY && s != color) {
-                Group g = gf.findGroup(n.x, n.y);
-                if (g.liberties.isEmpty()) {
-                    // zbij całą grupę
-                    for (Position p : g.stones) {
-                        copy.set(p.x, p.y, Stone.EMPTY);
-                        captures.add(p);
-                    }
-                }
-            }
-        }
+    @Override
+    public MoveResult validate(Board board, int x, int y, Stone color) {
 
-        //sprawdzenie samobójstwa
-        Group myGroup = gf.findGroup(x, y);
-        if (myGroup.liberties.isEmpty() && captures.isEmpty()) {
-            return MoveResult.error("Samobojstwo");
+        //sprawdzenie legalności pola
+        if (!board.isOnBoard(x, y)) {
+            return OFF_BOARD;
         }
-
-        // sprawdzenie reguły ko
-        String hashAfter = copy.toString();
-        if (koDetector.isKo(hashAfter)) {
-            return MoveResult.error("Ko - niedozwolone powtórzenie pozycji");
+        if (board.get(x, y) != Stone.EMPTY) {
+            return OCCUPIED;
         }
 
-        // dodanie do historii
-        koDetector.push(board.toString());
+        //sprawdzenie samobójstwa (bez stawiania kamienia)
+        if (board.isSuicide(x, y, color)) {
+            return SUICIDE;
+        }
 
-        //zwróć wynik
-        return MoveResult.ok(captures, copy);
+        // sprawdzenie reguły ko - hash pozycji po ruchu liczony bez jego wykonywania
+        Stone opponent = (color == Stone.BLACK) ? Stone.WHITE : Stone.BLACK;
+        if (koDetector.isKo(board.hashAfter(x, y, color), opponent)) {
+            return KO;
+        }
+        return null;
     }
 }
@@ -0,0 +1,198 @@
+package com.example.rules;
+
+import com.example.model.*;
+
+import java.util.Arrays;
+
+/**
+ * Przyrostowe liczenie terytorium dla trwającej partii.
+ *
+ * Trzyma etykiety pustych regionów, ich rozmiary i kolory graniczne (bit 1 - czarny,
+ * bit 2 - biały) oraz bieżące sumy terytorium. {@link #sync} porównuje planszę
+ * z ostatnio widzianą słowo po słowie i zalewa od nowa tylko regiony sąsiadujące
+ * ze zmienionymi punktami, więc odczyt wyniku po ruchu nie przechodzi całej planszy.
+ *
+ * Daje ten sam wynik co {@link TerritoryScorer#score}: seki nie zmienia sum
+ * (region z jednym kolorem granicznym nigdy nie graniczy z grupą tego koloru
+ * w seki), dlatego seki sprawdzane jest tylko na żądanie w {@link #isSeki}.
+ */
+public final class IncrementalScorer {
+    private static final int BLACK_BIT = 1;
+    private static final int WHITE_BIT = 2;
+
+    private final int width;
+    private final int height;
+    private final NeighbourTable nt;
+    private final long[] black;
+    private final long[] white;
+    // etykieta regionu pustego punktu, -1 dla kamienia
+    private final int[] label;
+    private final int[] regionSize;
+    private final int[] regionBorder;
+    private final int[] freeLabels;
+    private int freeTop;
+    private final int[] stack;
+    private final int[] seeds;
+    private final int[] stamp;
+    private int generation = 0;
+    private long hash;
+
+    private int blackStones;
+    private int whiteStones;
+    private int blackTerritory;
+    private int whiteTerritory;
+
+    public IncrementalScorer(Board board) {
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.nt = board.neighbours();
+        int n = board.getPointCount();
+        this.black = board.newMask();
+        this.white = board.newMask();
+        this.label = new int[n];
+        this.regionSize = new int[n];
+        this.regionBorder = new int[n];
+        this.freeLabels = new int[n];
+        this.stack = new int[n];
+        this.seeds = new int[n];
+        this.stamp = new int[n];
+        for (int l = n - 1; l >= 0; l--) freeLabels[freeTop++] = l;
+
+        // start od pustej planszy: jeden region bez granic
+        int l = freeLabels[--freeTop];
+        Arrays.fill(label, l);
+        regionSize[l] = n;
+        regionBorder[l] = 0;
+        hash = 0L;
+        sync(board);
+    }
+
+    /**
+     * Uzgadnia stan z planszą. Bez zmian (ten sam hash) kosztuje O(1),
+     * w przeciwnym razie przelicza tylko regiony przy zmienionych punktach.
+     */
+    public void sync(Board board) {
+        if (board.getWidth() != width || board.getHeight() != height) {
+            throw new IllegalArgumentException("Board size mismatch: " + board.dimensions() + " != " + width + "x" + height);
+        }
+        if (board.hash() == hash) return;
+
+        int gen = nextGeneration();
+        int seedCount = 0;
+        for (int w = 0; w < black.length; w++) {
+            long nb = board.stoneWord(Stone.BLACK, w);
+            long nw = board.stoneWord(Stone.WHITE, w);
+            long diff = (black[w] ^ nb) | (white[w] ^ nw);
+            if (diff == 0) continue;
+            blackStones += Long.bitCount(nb) - Long.bitCount(black[w]);
+            whiteStones += Long.bitCount(nw) - Long.bitCount(white[w]);
+            black[w] = nb;
+            white[w] = nw;
+
+            for (; diff != 0; diff &= diff - 1) {
+                int p = (w << 6) + Long.numberOfTrailingZeros(diff);
+                retire(p);
+                label[p] = -1;
+                if (board.stoneAt(p) == Stone.EMPTY && stamp[p] != gen) {
+                    // punkt zasiewu dodawany najwyżej raz
+                    stamp[p] = gen;
+                    seeds[seedCount++] = p;
+                }
+                for (int k = 0, d = nt.degree(p); k < d; k++) {
+                    int q = nt.neighbour(p, k);
+                    retire(q);
+                    if (board.stoneAt(q) == Stone.EMPTY && stamp[q] != gen) {
+                        stamp[q] = gen;
+                        seeds[seedCount++] = q;
+                    }
+                }
+            }
+        }
+
+        // drugi znacznik: punkty już zalane w tym wywołaniu
+        int fill = nextGeneration();
+        for (int i = 0; i < seedCount; i++) {
+            int s = seeds[i];
+            if (stamp[s] != fill) flood(board, s, fill);
+        }
+        hash = board.hash();
+    }
+
+    /** Bieżący wynik (kamienie i terytorium). */
+    public TerritoryScorer.Score score() {
+        return new TerritoryScorer.Score(blackStones, whiteStones, blackTerritory, whiteTerritory);
+    }
+
+    public int getBlackTerritory() {
+        return blackTerritory;
+    }
+
+    public int getWhiteTerritory() {
+        return whiteTerritory;
+    }
+
+    /**
+     * Czy grupa kamienia (x, y) jest w seki: ma oddechy, a wszystkie regiony,
+     * z którymi się styka, są neutralne. Plansza musi być zsynchronizowana.
+     */
+    public boolean isSeki(Board board, int x, int y) {
+        GroupFinder.Result r = board.scanGroup(x, y);
+        if (r.getLibertyCount() == 0) return false;
+        for (int i = 0; i < r.getLibertyCount(); i++) {
+            int border = regionBorder[label[r.getLiberty(i)]];
+            if (border == BLACK_BIT || border == WHITE_BIT) return false;
+        }
+        return true;
+    }
+
+    // usuwa region punktu p (jeśli był pusty) razem z jego wkładem do sum
+    private void retire(int p) {
+        int l = label[p];
+        if (l < 0 || regionSize[l] == 0) return;
+        contribute(l, -1);
+        regionSize[l] = 0;
+        freeLabels[freeTop++] = l;
+    }
+
+    private void flood(Board board, int start, int fill) {
+        int l = freeLabels[--freeTop];
+        int count = 0;
+        int border = 0;
+        int top = 0;
+        stack[top++] = start;
+        stamp[start] = fill;
+        while (top > 0) {
+            int p = stack[--top];
+            label[p] = l;
+            count++;
+            for (int k = 0, d = nt.degree(p); k < d; k++) {
+                int q = nt.neighbour(p, k);
+                Stone s = board.stoneAt(q);
+                if (s == Stone.EMPTY) {
+                    if (stamp[q] != fill) {
+                        stamp[q] = fill;
+                        stack[top++] = q;
+                    }
+                } else {
+                    border |= (s == Stone.BLACK) ? BLACK_BIT : WHITE_BIT;
+                }
+            }
+        }
+        regionSize[l] = count;
+        regionBorder[l] = border;
+        contribute(l, 1);
+    }
+
+    private void contribute(int l, int sign) {
+        if (regionBorder[l] == BLACK_BIT) blackTerritory += sign * regionSize[l];
+        else if (regionBorder[l] == WHITE_BIT) whiteTerritory += sign * regionSize[l];
+    }
+
+    private int nextGeneration() {
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        return generation;
+    }
+}
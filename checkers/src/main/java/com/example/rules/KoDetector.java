@@ -1,38 +1,81 @@
 package com.example.rules;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import com.example.model.Stone;
+import com.example.model.Zobrist;
 
 /**
- * Prosty detektor ko oparty na porównaniu String.
+ * Detektor ko oparty na hashach Zobrista planszy.
  * 
- * Przechowuje ostatnie N reprezentacji planszy i potrafi sprawdzić, czy dany
- * string powtarza ostatnie ustawienie.
+ * W trybie {@link KoRule#SIMPLE} przechowuje ostatnie N hashy układów planszy
+ * (bufor cykliczny) i sprawdza, czy dany hash powtarza ostatnie ustawienie.
+ * W trybach superko pamięta hash każdej pozycji z całej partii w
+ * {@link LongHashSet}, więc wykrywa też dłuższe cykle (potrójne ko itp.)
+ * sprawdzeniem w O(1), a pamięć rośnie proporcjonalnie do długości partii.
  */
 public class KoDetector {
-    private final Deque<String> history = new ArrayDeque<>();
-    private final int capacity;
+    private final KoRule rule;
+    private final long[] history;
+    private final LongHashSet seen;
+    private int head = 0;
+    private int count = 0;
 
     public KoDetector() { this(10); }
-    public KoDetector(int capacity) { this.capacity = capacity; }
+    public KoDetector(int capacity) { this(KoRule.SIMPLE, capacity); }
+    public KoDetector(KoRule rule) { this(rule, 10); }
+
+    public KoDetector(KoRule rule, int capacity) {
+        this.rule = rule;
+        this.history = new long[Math.max(1, capacity)];
+        this.seen = (rule == KoRule.SIMPLE) ? null : new LongHashSet(256);
+    }
+
+    public KoRule getRule() {
+        return rule;
+    }
 
     /**
      * Dodaje nowy stan do historii.
      * 
-     * @param boardString reprezentacja planszy
+     * @param boardHash hash planszy ({@link com.example.model.Board#hash()})
      */
-    public synchronized void push(String boardString) {
-        history.addFirst(boardString);
-        if (history.size() > capacity) history.removeLast();
+    public synchronized void push(long boardHash) {
+        head = (head + 1) % history.length;
+        history[head] = boardHash;
+        if (count < history.length) count++;
+        if (seen != null) seen.add(boardHash);
     }
 
     /**
-     * Sprawdza, czy stan jest równy ostatniemu zapisanemu.
+     * Sprawdza, czy stan powtarza pozycję zabronioną przez regułę ko.
      * 
-     * @param boardString
-     * @return
+     * @param boardHash hash planszy po ruchu
+     * @return true, jeśli ruch odtwarza zabronioną pozycję
      */
-    public synchronized boolean isKo(String boardString) {
-        return !history.isEmpty() && history.peekFirst().equals(boardString);
+    public synchronized boolean isKo(long boardHash) {
+        if (seen != null) return seen.contains(boardHash);
+        return count > 0 && history[head] == boardHash;
+    }
+
+    /** Dodaje pozycję, w której na ruchu jest {@code toMove}. */
+    public void push(long boardHash, Stone toMove) {
+        push(key(boardHash, toMove));
+    }
+
+    /** Sprawdza pozycję, w której na ruchu jest {@code toMove}. */
+    public boolean isKo(long boardHash, Stone toMove) {
+        return isKo(key(boardHash, toMove));
+    }
+
+    // w superko sytuacyjnym gracz na ruchu jest częścią pozycji
+    private long key(long boardHash, Stone toMove) {
+        if (rule == KoRule.SITUATIONAL_SUPERKO && toMove == Stone.WHITE) {
+            return boardHash ^ Zobrist.whiteToMove();
+        }
+        return boardHash;
+    }
+
+    /** Liczba pozycji zapamiętanych na potrzeby superko (0 w trybie prostym). */
+    public synchronized int positionsSeen() {
+        return seen == null ? 0 : seen.size();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.example.rules;
+
+/**
+ * Wariant reguły ko stosowany w grze.
+ */
+public enum KoRule {
+    /** Zakaz natychmiastowego powtórzenia pozycji sprzed ostatniego ruchu. */
+    SIMPLE,
+    /** Superko pozycyjne: zakaz powtórzenia dowolnego wcześniejszego układu kamieni. */
+    POSITIONAL_SUPERKO,
+    /** Superko sytuacyjne: zakaz powtórzenia układu kamieni przy tym samym graczu na ruchu. */
+    SITUATIONAL_SUPERKO
+}
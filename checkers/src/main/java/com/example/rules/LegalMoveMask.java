@@ -0,0 +1,191 @@
+package com.example.rules;
+
+import com.example.model.*;
+
+import java.util.Arrays;
+
+/**
+ * Maska legalnych ruchów dla obu kolorów, aktualizowana przyrostowo po każdym ruchu.
+ *
+ * Dla każdego koloru trzyma bitboard pustych punktów, na których postawienie
+ * kamienia nie jest samobójstwem. Legalność punktu zależy tylko od jego sąsiadów
+ * i oddechów sąsiednich łańcuchów, więc po ruchu przeliczane są jedynie:
+ * - punkt ruchu i zbite punkty oraz ich sąsiedzi,
+ * - oddechy łańcuchów, które zyskały lub straciły oddech.
+ *
+ * Osobno pamiętane są punkty zabronione przez ko dla gracza na ruchu. Sprawdzane są
+ * tylko punkty zbite ostatnim ruchem (tylko tam ko może powstać przy biciu), więc
+ * maska jest dokładna dla prostego ko. W trybach superko powtórzenie pozycji bez
+ * bicia wykrywają dopiero reguły przy wykonywaniu ruchu.
+ */
+public final class LegalMoveMask {
+    private final Board board;
+    private final Rules rules;
+    private final NeighbourTable nt;
+    private final int width;
+    private final long[] black;
+    private final long[] white;
+    private final long[] ko;
+    private final int[] koPoints;
+    private int koCount = 0;
+    private Stone koColor = Stone.EMPTY;
+    private final int[] stamp;
+    private int generation = 0;
+
+    public LegalMoveMask(Board board, Rules rules) {
+        this.board = board;
+        this.rules = rules;
+        this.nt = board.neighbours();
+        this.width = board.getWidth();
+        this.black = board.newMask();
+        this.white = board.newMask();
+        this.ko = board.newMask();
+        this.koPoints = new int[board.getPointCount()];
+        this.stamp = new int[board.getPointCount()];
+        rebuild();
+    }
+
+    /** Przelicza całą maskę od zera (np. po zdjęciu martwych kamieni). */
+    public void rebuild() {
+        clearKo();
+        for (int p = 0, n = board.getPointCount(); p < n; p++) {
+            refresh(p);
+        }
+    }
+
+    /**
+     * Aktualizuje maskę po ruchu wykonanym na planszy.
+     *
+     * @param undo rekord ruchu zwrócony przez {@link Board#play}
+     */
+    public void update(Board.Undo undo) {
+        int gen = nextGeneration();
+        int p = undo.getPoint();
+        refresh(p);
+        touch(p, gen);
+        for (int i = 0; i < undo.getCapturedCount(); i++) {
+            touch(undo.getCaptured(i), gen);
+        }
+
+        // ko może dotyczyć tylko punktów właśnie zbitych, i tylko gracza na ruchu
+        clearKo();
+        Stone next = undo.getColor() == Stone.BLACK ? Stone.WHITE : Stone.BLACK;
+        koColor = next;
+        long[] own = bits(next);
+        for (int i = 0; i < undo.getCapturedCount(); i++) {
+            int c = undo.getCaptured(i);
+            if ((own[c >>> 6] & (1L << c)) == 0) continue;
+            if (rules.validate(board, c % width, c / width, next) != null) {
+                ko[c >>> 6] |= 1L << c;
+                koPoints[koCount++] = c;
+            }
+        }
+    }
+
+    /** Czy kolor {@code color} może zagrać na punkcie o indeksie p. */
+    public boolean isLegal(int p, Stone color) {
+        if (color == Stone.EMPTY) return false;
+        long bit = 1L << p;
+        if ((bits(color)[p >>> 6] & bit) == 0) return false;
+        return color != koColor || (ko[p >>> 6] & bit) == 0;
+    }
+
+    /** Liczba legalnych punktów dla koloru. */
+    public int count(Stone color) {
+        long[] b = bits(color);
+        int n = 0;
+        for (int w = 0; w < b.length; w++) {
+            long m = b[w];
+            if (color == koColor) m &= ~ko[w];
+            n += Long.bitCount(m);
+        }
+        return n;
+    }
+
+    /**
+     * Indeks k-tego (od 0) legalnego punktu dla koloru, albo -1.
+     * Pozwala losować ruch bez tworzenia listy.
+     */
+    public int point(Stone color, int k) {
+        long[] b = bits(color);
+        for (int w = 0; w < b.length; w++) {
+            long m = b[w];
+            if (color == koColor) m &= ~ko[w];
+            int c = Long.bitCount(m);
+            if (k < c) {
+                for (; k > 0; k--) m &= m - 1;
+                return (w << 6) + Long.numberOfTrailingZeros(m);
+            }
+            k -= c;
+        }
+        return -1;
+    }
+
+    /** Kopia maski legalnych punktów dla koloru (bit p = punkt o indeksie p). */
+    public long[] toMask(Stone color) {
+        long[] b = bits(color).clone();
+        if (color == koColor) {
+            for (int w = 0; w < b.length; w++) b[w] &= ~ko[w];
+        }
+        return b;
+    }
+
+    private long[] bits(Stone color) {
+        return color == Stone.BLACK ? black : white;
+    }
+
+    // przelicza punkt p i jego sąsiedztwo; łańcuchy sąsiadów przelicza po ich oddechach
+    private void touch(int p, int gen) {
+        visit(p, gen);
+        for (int k = 0, d = nt.degree(p); k < d; k++) {
+            visit(nt.neighbour(p, k), gen);
+        }
+    }
+
+    private void visit(int q, int gen) {
+        if (stamp[q] == gen) return;
+        if (board.stoneAt(q) == Stone.EMPTY) {
+            stamp[q] = gen;
+            refresh(q);
+            return;
+        }
+        GroupFinder.Result r = board.scanGroup(q % width, q / width);
+        for (int i = 0; i < r.getStoneCount(); i++) {
+            stamp[r.getStone(i)] = gen;
+        }
+        for (int i = 0; i < r.getLibertyCount(); i++) {
+            int l = r.getLiberty(i);
+            if (stamp[l] == gen) continue;
+            stamp[l] = gen;
+            refresh(l);
+        }
+    }
+
+    private void refresh(int p) {
+        int w = p >>> 6;
+        long bit = 1L << p;
+        black[w] &= ~bit;
+        white[w] &= ~bit;
+        if (board.stoneAt(p) != Stone.EMPTY) return;
+        int x = p % width, y = p / width;
+        if (!board.isSuicide(x, y, Stone.BLACK)) black[w] |= bit;
+        if (!board.isSuicide(x, y, Stone.WHITE)) white[w] |= bit;
+    }
+
+    private void clearKo() {
+        for (int i = 0; i < koCount; i++) {
+            int c = koPoints[i];
+            ko[c >>> 6] &= ~(1L << c);
+        }
+        koCount = 0;
+        koColor = Stone.EMPTY;
+    }
+
+    private int nextGeneration() {
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        return generation;
+    }
+}
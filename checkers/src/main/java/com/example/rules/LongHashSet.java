@@ -0,0 +1,88 @@
+package com.example.rules;
+
+import java.util.Arrays;
+
+/**
+ * Zbiór wartości {@code long} z adresowaniem otwartym (sondowanie liniowe).
+ *
+ * Bez pudełkowania i bez obiektów na element: wartości leżą w jednej tablicy,
+ * która podwaja się po przekroczeniu połowy zapełnienia. Zero jest w tablicy
+ * znacznikiem pustego miejsca, więc jego obecność trzymana jest osobno.
+ */
+public final class LongHashSet {
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+
+    public LongHashSet() {
+        this(64);
+    }
+
+    public LongHashSet(int expected) {
+        int cap = 16;
+        while (cap < expected * 2) cap <<= 1;
+        keys = new long[cap];
+        mask = cap - 1;
+    }
+
+    /**
+     * Dodaje wartość.
+     *
+     * @return true, jeśli wartości wcześniej nie było
+     */
+    public boolean add(long key) {
+        if (key == 0L) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(key);
+        while (keys[i] != 0L) {
+            if (keys[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        size++;
+        if (size * 2 > keys.length) grow();
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0L) return hasZero;
+        int i = slot(key);
+        while (keys[i] != 0L) {
+            if (keys[i] == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        hasZero = false;
+        size = 0;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        mask = keys.length - 1;
+        for (long k : old) {
+            if (k == 0L) continue;
+            int i = slot(k);
+            while (keys[i] != 0L) i = (i + 1) & mask;
+            keys[i] = k;
+        }
+    }
+}
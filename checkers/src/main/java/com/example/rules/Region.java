@@ -1,26 +1,31 @@
 package com.example.rules;
 
+import com.example.model.PointSet;
 import com.example.model.Position;
 import com.example.model.Stone;
 
-import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.List;
 import java.util.Set;
 
 /**
  * Reprezentuje pusty region (zbiór pól) oraz kolory kamieni, które go ograniczają.
+ * Pola trzymane są jako bitset punktów ({@link PointSet}).
  */
 public final class Region {
     /** Unikalne id regionu. */
     public final int id;
     /** Pola (pozycje) należące do regionu pustek. */
-    public final List<Position> positions = new ArrayList<>();
+    public final PointSet positions;
     /** Kolory kamieni otaczających region. */
     public final Set<Stone> borderingColors = EnumSet.noneOf(Stone.class);
 
-    public Region(int id) {
+    public Region(int id, int boardSize) {
+        this(id, boardSize, boardSize);
+    }
+
+    public Region(int id, int width, int height) {
         this.id = id;
+        this.positions = new PointSet(width, height);
     }
 
     /** Dodaje pozycję do regionu. */
@@ -28,6 +33,11 @@ public final class Region {
         positions.add(p);
     }
 
+    /** Dodaje punkt o indeksie {@code y * width + x}. */
+    public void addPoint(int point) {
+        positions.add(point);
+    }
+
     /** Dodaje kolor granicy (kamienia) — użyteczne podczas flood-fill. */
     public void addBorderingColor(Stone s) {
         borderingColors.add(s);
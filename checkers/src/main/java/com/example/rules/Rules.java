@@ -7,6 +7,8 @@ import com.example.model.*;
 public interface Rules {
     /**
      * Próbuje zastosować ruch na planszy. 
+     * Legalny ruch jest wykonywany bezpośrednio na przekazanej planszy; można go
+     * cofnąć przez {@link Board#undo} z rekordem {@link MoveResult#getUndo()}.
      * 
      * @param board plansza
      * @param x kolumna
@@ -15,4 +17,11 @@ public interface Rules {
      * @return MoveResult opisujący rezultat
      */
     MoveResult applyMove(Board board, int x, int y, Stone color);
+
+    /**
+     * Sprawdza legalność ruchu bez modyfikowania planszy i historii.
+     *
+     * @return wynik z błędem albo null, jeśli ruch jest legalny
+     */
+    MoveResult validate(Board board, int x, int y, Stone color);
 }
@@ -0,0 +1,116 @@
+package com.example.rules;
+
+import com.example.model.Board;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pamięć podręczna wyników {@link TerritoryScorer#score} z wypieraniem LRU.
+ *
+ * Kluczem jest rozmiar planszy, hash Zobrista pozycji i hash oznaczeń martwych
+ * kamieni, więc ta sama pozycja oceniana wielokrotnie (powtórki, podgląd wyniku
+ * w fazie liczenia) liczona jest raz. Oznaczone martwe kamienie traktowane są
+ * jak zdjęte z planszy. Metody są synchronizowane - jeden obiekt może być
+ * współdzielony przez serwer i analizę po stronie persystencji.
+ */
+public final class ScoreCache {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final ScoreCache SHARED = new ScoreCache(DEFAULT_CAPACITY);
+
+    private final Map<Key, TerritoryScorer.Score> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    public ScoreCache(int capacity) {
+        int max = Math.max(1, capacity);
+        // accessOrder = true: iteracja od najdawniej używanego wpisu
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TerritoryScorer.Score> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    /** Wspólna pamięć podręczna procesu. */
+    public static ScoreCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Wynik dla planszy, z pamięci albo policzony i zapamiętany.
+     * Planszy nie modyfikuje.
+     */
+    public TerritoryScorer.Score score(Board board) {
+        Key key = new Key(board.getWidth() << 8 | board.getHeight(), board.hash(), board.deadHash());
+        synchronized (this) {
+            TerritoryScorer.Score cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        // liczenie poza blokadą - równoległe chybienia najwyżej policzą to samo dwa razy
+        TerritoryScorer.Score score;
+        if (board.hasDeadMarks()) {
+            Board alive = board.clone();
+            alive.removeStones(board.deadMask());
+            score = TerritoryScorer.score(alive);
+        } else {
+            score = TerritoryScorer.score(board);
+        }
+
+        synchronized (this) {
+            entries.put(key, score);
+        }
+        return score;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    private static final class Key {
+        // szerokość << 8 | wysokość
+        private final int dims;
+        private final long hash;
+        private final long deadHash;
+
+        Key(int dims, long hash, long deadHash) {
+            this.dims = dims;
+            this.hash = hash;
+            this.deadHash = deadHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return dims == k.dims && hash == k.hash && deadHash == k.deadHash;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = hash * 31 + deadHash;
+            return (int) (h ^ (h >>> 32)) * 31 + dims;
+        }
+    }
+}
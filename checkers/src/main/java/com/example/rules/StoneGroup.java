@@ -1,16 +1,17 @@
 package com.example.rules;
 
+import com.example.model.PointSet;
 import com.example.model.Position;
 import com.example.model.Stone;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 /**
  * Reprezentuje grupę kamieni jednego koloru wraz z jej oddechami
  * oraz informacją o tym, z którymi regionami pustek się styka.
  *
  * Pole {@code isSeki} jest ustawiane gdy grupa styka się z regionem neutralnym.
+ * Kamienie i oddechy to bitsety punktów, identyfikatory regionów - {@link BitSet}.
  */
 public final class StoneGroup {
     /** Lokalne id grupy. */
@@ -18,21 +19,30 @@ public final class StoneGroup {
     /** Kolor kamieni w grupie. */
     public final Stone color;
     /** Pozycje kamieni należących do grupy. */
-    public final Set<Position> stones = new HashSet<>();
+    public final PointSet stones;
     /** Zbiory oddechów (pozycje puste). */
-    public final Set<Position> liberties = new HashSet<>();
+    public final PointSet liberties;
     /** Identyfikatory regionów pustek, z którymi grupa się styka. */
-    public final Set<Integer> adjacentRegionIds = new HashSet<>();
+    public final BitSet adjacentRegionIds = new BitSet();
     /** Flaga seki (ustawiana przez TerritoryScorer). */
     public boolean isSeki = false;
 
-    public StoneGroup(int id, Stone color) {
+    public StoneGroup(int id, Stone color, int boardSize) {
+        this(id, color, boardSize, boardSize);
+    }
+
+    public StoneGroup(int id, Stone color, int width, int height) {
         this.id = id;
         this.color = color;
+        this.stones = new PointSet(width, height);
+        this.liberties = new PointSet(width, height);
     }
 
     public void addStone(Position p) { stones.add(p); }
+    public void addStone(int point) { stones.add(point); }
     public void addLiberty(Position p) { liberties.add(p); }
-    public void addAdjacentRegionId(int rid) { adjacentRegionIds.add(rid); }
+    public void addLiberty(int point) { liberties.add(point); }
+    public void addAdjacentRegionId(int rid) { adjacentRegionIds.set(rid); }
+    public boolean isAdjacentTo(int rid) { return adjacentRegionIds.get(rid); }
     public void markSeki() { isSeki = true; }
 }
\ No newline at end of file
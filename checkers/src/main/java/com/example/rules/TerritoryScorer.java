@@ -1,16 +1,29 @@
 package com.example.rules;
 
 import com.example.model.Board;
-import com.example.model.Position;
 import com.example.model.Stone;
 
-import java.util.*;
-
 /**
  * Oblicza terytorium i punkty (stones + territory) z wykryciem seki.
+ *
+ * Puste regiony i łańcuchy kamieni etykietowane są jednym przebiegiem rastrowym
+ * z union-find na tablicach {@code int[]} (łączenie z sąsiadem z lewej i z góry).
+ * Kolory graniczne regionów i znaczniki seki to flagi bitowe przy korzeniach,
+ * liczone kolejnymi przebiegami po krawędziach planszy - bez map, zbiorów i
+ * obiektów pozycji, więc koszt jest liniowy względem liczby punktów.
  */
 public final class TerritoryScorer {
 
+    // flagi przy korzeniu pustego regionu
+    private static final int BORDER_BLACK = 1;
+    private static final int BORDER_WHITE = 2;
+    private static final int SEKI_BLACK = 4;
+    private static final int SEKI_WHITE = 8;
+    private static final int BOTH = BORDER_BLACK | BORDER_WHITE;
+    // flagi przy korzeniu łańcucha
+    private static final int TOUCHES_REGION = 1;
+    private static final int TOUCHES_OWNED = 2;
+
     private TerritoryScorer() {}
 
     /**
@@ -20,161 +33,124 @@ public final class TerritoryScorer {
      * @return wynik scoringu
      */
     public static Score score(Board board) {
-        int size = board.getSize();
-
-        // 1) znajdź wszystkie puste regiony i nadaj im ID
-        // regionId[y][x] == -1 oznacza nieodwiedzony punkt pusty
-        int[][] regionId = new int[size][size];
-        for (int i = 0; i < size; i++) Arrays.fill(regionId[i], -1);
-        Map<Integer, Region> regions = new HashMap<>();
-        int nextRegionId = 0;
-
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                // pomija zajęte pola
-                if (board.get(x, y) != Stone.EMPTY) continue;
-                // pomija przypisany region
-                if (regionId[y][x] != -1) continue;
-
-                // flood-fill, aby cały region zebrać
-                Deque<Position> stack = new ArrayDeque<>();
-                stack.push(new Position(x, y));
-                regionId[y][x] = nextRegionId;
-                Region reg = new Region(nextRegionId);
-
-                while (!stack.isEmpty()) {
-                    Position p = stack.pop();
-                    reg.addPosition(p);
-                    
-                    // dla każdego sąsiada: jeśli pusty i nieodwiedzony -> dodaj do stosu,
-                    // jeśli zajęty -> zarejestruj kolor graniczny regionu
-                    List<Position> neigh = board.getNeighbours(p.x, p.y);
-                    for (Position n : neigh) {
-                        Stone ns = board.get(n.x, n.y);
-                        if (ns == Stone.EMPTY) {
-                            if (regionId[n.y][n.x] == -1) {
-                                regionId[n.y][n.x] = nextRegionId;
-                                stack.push(new Position(n.x, n.y));
-                            }
-                        } else {
-                            // rejestrujemy, jakimi kolorami otoczony jest pusty region
-                            reg.addBorderingColor(ns);
-                        }
-                    }
-                }
-
-                regions.put(nextRegionId, reg);
-                nextRegionId++;
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int n = board.getPointCount();
+        // 0 - puste, 1 - czarny, 2 - biały (zgodne z flagami BORDER_*)
+        int[] kind = new int[n];
+        int[] parent = new int[n];
+        int[] flags = new int[n];
+
+        // rodzaj punktu odczytany całymi słowami bitboardów
+        for (int w = 0, words = board.wordCount(); w < words; w++) {
+            for (long b = board.stoneWord(Stone.BLACK, w); b != 0; b &= b - 1) {
+                kind[(w << 6) + Long.numberOfTrailingZeros(b)] = BORDER_BLACK;
+            }
+            for (long b = board.stoneWord(Stone.WHITE, w); b != 0; b &= b - 1) {
+                kind[(w << 6) + Long.numberOfTrailingZeros(b)] = BORDER_WHITE;
             }
         }
 
-        // 2) znajdź wszystkie grupy kamieni i powiąż je z regionami pustek
-        // seen[y][x] - czy kamień został już przypisany do jakiejś grupy
-        boolean[][] seen = new boolean[size][size];
-        Map<Integer, StoneGroup> groups = new HashMap<>();
-        int nextGroupId = 0;
-
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                Stone s = board.get(x, y);
-                // ignorujemy puste pola i już przetworzone kamienie
-                if (s == Stone.EMPTY || seen[y][x]) continue;
-
-                Deque<Position> stack = new ArrayDeque<>();
-                stack.push(new Position(x, y));
-                StoneGroup g = new StoneGroup(nextGroupId, s);
-
-                while (!stack.isEmpty()) {
-                    Position p = stack.pop();
-                    if (seen[p.y][p.x]) continue; // jeśli znów dodany
-                    if (board.get(p.x, p.y) != s) continue; // sprawdzanie koloru
-
-                    seen[p.y][p.x] = true;
-                    g.addStone(p);
-
-                    // przeglądamy sąsiadów: wolne punkty to "liberties" grupy,
-                    // a jeśli sąsiednie pole należy do regionu pustego, zapamiętujemy jego ID
-                    List<Position> neigh = board.getNeighbours(p.x, p.y);
-                    for (Position n : neigh) {
-                        Stone ns = board.get(n.x, n.y);
-                        if (ns == Stone.EMPTY) {
-                            g.addLiberty(n);
-                            int rid = regionId[n.y][n.x];
-                            if (rid != -1) g.addAdjacentRegionId(rid);
-                        } else if (ns == s) {
-                            // kamień tego samego koloru -> należą do tej samej grupy
-                            if (!seen[n.y][n.x]) stack.push(n);
-                        }
-                    }
-                }
-
-                groups.put(nextGroupId, g);
-                nextGroupId++;
+        // 1) jeden przebieg: etykietowanie regionów i łańcuchów union-find
+        for (int y = 0, p = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, p++) {
+                int k = kind[p];
+                parent[p] = p;
+                if (x > 0 && kind[p - 1] == k) union(parent, p, p - 1);
+                if (y > 0 && kind[p - width] == k) union(parent, p, p - width);
             }
         }
-
-        // 3) regiony neutralne (granica z !=1 kolorami)
-        Set<Integer> neutralRegions = new HashSet<>();
-        for (Region r : regions.values()) {
-            if (r.borderingColors.size() != 1) neutralRegions.add(r.id);
+        for (int p = 0; p < n; p++) parent[p] = find(parent, p);
+
+        // 2) kolory graniczne regionów (każda krawędź pusty-kamień raz)
+        boolean neutral = false;
+        for (int y = 0, p = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, p++) {
+                if (x + 1 < width) border(kind, parent, flags, p, p + 1);
+                if (y + 1 < height) border(kind, parent, flags, p, p + width);
+            }
+        }
+        for (int p = 0; p < n && !neutral; p++) {
+            neutral = kind[p] == 0 && (flags[parent[p]] & BOTH) == BOTH;
         }
 
-        // 4) grupy w seki:
-        // grupa jest w seki tylko wtedy, gdy ma co najmniej jedno adjacentRegionId
-        // i wszystkie regiony z którymi się styka są neutralne.
-        for (StoneGroup g : groups.values()) {
-            if (g.adjacentRegionIds.isEmpty()) {
-                // grupa nie graniczy z żadnym pustym regionem -> nie traktujemy jej jako seki
-                g.isSeki = false;
-                continue;
-            }
-            boolean allNeutral = true;
-            for (Integer rid : g.adjacentRegionIds) {
-                if (!neutralRegions.contains(rid)) {
-                    allNeutral = false;
-                    break;
+        // 3) łańcuchy: czy stykają się z jakimkolwiek regionem i czy z regionem
+        // jednego koloru; seki = styka się z regionami, ale tylko neutralnymi
+        // (bez regionu neutralnego nie ma seki - oba przebiegi można pominąć)
+        if (neutral) {
+            int[] chainFlags = new int[n];
+            for (int y = 0, p = 0; y < height; y++) {
+                for (int x = 0; x < width; x++, p++) {
+                    if (x + 1 < width) touch(kind, parent, flags, chainFlags, p, p + 1);
+                    if (y + 1 < height) touch(kind, parent, flags, chainFlags, p, p + width);
                 }
             }
-            g.isSeki = allNeutral;
-        }
 
-        // 5) policz kamienie i przydziel terytorium (regiony z dokładnie 1 kolorem granicznym
-        // i bez przylegających grup tego koloru oznaczonych jako seki)
-        int blackStones = 0;
-        int whiteStones = 0;
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                Stone st = board.get(x, y);
-                if (st == Stone.BLACK) blackStones++;
-                else if (st == Stone.WHITE) whiteStones++;
+            // 4) regiony sąsiadujące z łańcuchem w seki dostają flagę jego koloru
+            for (int y = 0, p = 0; y < height; y++) {
+                for (int x = 0; x < width; x++, p++) {
+                    if (x + 1 < width) seki(kind, parent, flags, chainFlags, p, p + 1);
+                    if (y + 1 < height) seki(kind, parent, flags, chainFlags, p, p + width);
+                }
             }
         }
 
+        // 5) terytorium: punkty regionów z jednym kolorem granicznym,
+        // do których nie przylega grupa tego koloru w seki
         int blackTerritory = 0;
         int whiteTerritory = 0;
+        for (int p = 0; p < n; p++) {
+            if (kind[p] != 0) continue;
+            int f = flags[parent[p]];
+            int b = f & BOTH;
+            if (b == BORDER_BLACK && (f & SEKI_BLACK) == 0) blackTerritory++;
+            else if (b == BORDER_WHITE && (f & SEKI_WHITE) == 0) whiteTerritory++;
+        }
 
-        for (Region r : regions.values()) {
-            // jeśli region graniczy z więcej/0 kolorami, pomijamy
-            if (r.borderingColors.size() != 1) continue;
-            Stone owner = r.borderingColors.iterator().next();
-
-            // pomijamy regiony należące do koloru, jeśli przylega do nich grupa tego koloru
-            // będąca w seki (w seki nie przyznajemy terytorium)
-            boolean borderingGroupInSeki = false;
-            for (StoneGroup g : groups.values()) {
-                if (g.color != owner) continue;
-                if (g.adjacentRegionIds.contains(r.id) && g.isSeki) {
-                    borderingGroupInSeki = true;
-                    break;
-                }
-            }
-            if (borderingGroupInSeki) continue;
+        int blackStones = board.countStones(Stone.BLACK);
+        int whiteStones = board.countStones(Stone.WHITE);
+        return new Score(blackStones, whiteStones, blackTerritory, whiteTerritory);
+    }
 
-            if (owner == Stone.BLACK) blackTerritory += r.size();
-            else if (owner == Stone.WHITE) whiteTerritory += r.size();
+    private static int find(int[] parent, int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
         }
+        return p;
+    }
 
-        return new Score(blackStones, whiteStones, blackTerritory, whiteTerritory);
+    // mniejszy indeks zostaje korzeniem
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra < rb) parent[rb] = ra;
+        else if (rb < ra) parent[ra] = rb;
+    }
+
+    private static void border(int[] kind, int[] parent, int[] flags, int a, int b) {
+        if (kind[a] == 0 && kind[b] != 0) flags[parent[a]] |= kind[b];
+        else if (kind[b] == 0 && kind[a] != 0) flags[parent[b]] |= kind[a];
+    }
+
+    private static void touch(int[] kind, int[] parent, int[] flags, int[] chainFlags, int a, int b) {
+        int empty, stone;
+        if (kind[a] == 0 && kind[b] != 0) { empty = a; stone = b; }
+        else if (kind[b] == 0 && kind[a] != 0) { empty = b; stone = a; }
+        else return;
+        int border = flags[parent[empty]] & BOTH;
+        int f = TOUCHES_REGION;
+        if (border == BORDER_BLACK || border == BORDER_WHITE) f |= TOUCHES_OWNED;
+        chainFlags[parent[stone]] |= f;
+    }
+
+    private static void seki(int[] kind, int[] parent, int[] flags, int[] chainFlags, int a, int b) {
+        int empty, stone;
+        if (kind[a] == 0 && kind[b] != 0) { empty = a; stone = b; }
+        else if (kind[b] == 0 && kind[a] != 0) { empty = b; stone = a; }
+        else return;
+        if (chainFlags[parent[stone]] != TOUCHES_REGION) return;
+        flags[parent[empty]] |= kind[stone] == BORDER_BLACK ? SEKI_BLACK : SEKI_WHITE;
     }
 
     /**
@@ -3,24 +3,21 @@ package com.example.server;
 import com.example.model.*;
 import com.example.game.Game;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 public class BotHandler implements Connection {
 
-    private final Server server;
+    private final GameSession session;
     private Game game;
     private Player player;
     private Stone myColor;
-    private final Board board;
     private boolean lastMoveFailed = false;
     private boolean twoLastMovesFailed = false;
+    private final Random random = new Random();
 
-    public BotHandler(Server server, int boardSize) {
-        this.server = server;
-        this.game = server.getGame();
-        this.board = new Board(boardSize);
+    public BotHandler(GameSession session) {
+        this.session = session;
+        this.game = session.getGame();
     }
 
     public void setPlayer(Player p) {
@@ -31,20 +28,16 @@ public class BotHandler implements Connection {
         return player;
     }
 
-    private void syncBoard() {
-        Board src = game.getBoard();
-        for (int y = 0; y < src.getSize(); y++) {
-            for (int x = 0; x < src.getSize(); x++) {
-                board.set(x, y, src.get(x, y));
-            }
-        }
-    }
-
-
     /**
      * Serwer wysyła do bota komunikaty tak samo jak do ClientHandler.
+     * Bot reaguje na nie na wątku shardu partii, po kolei z poleceniami gracza
+     * (etap rozsyłania potoku nie publikuje sam do siebie).
      */
     public void send(String msg) {
+        session.execute(() -> handle(msg));
+    }
+
+    private void handle(String msg) {
 
         if (msg.startsWith("ASSIGN")) {
             String[] parts = msg.split(" ");
@@ -56,26 +49,15 @@ public class BotHandler implements Connection {
         }
 
         else if (msg.startsWith("SCORING")) {
-            server.handleAccept(this);
+            session.handleAccept(this);
         }
 
         else if (msg.startsWith("INFO Next")) {
-            syncBoard();
             Stone turn = Stone.valueOf(msg.split(" ")[3]);
             System.out.println(Stone.valueOf(msg.split(" ")[3]));
             if (turn == myColor) makeMove();
         }
-        else if (msg.startsWith("INFO Next")) {
-            syncBoard();
-            Stone turn = Stone.valueOf(msg.split(" ")[3]);
-            System.out.println(Stone.valueOf(msg.split(" ")[3]));
-            if (turn == myColor) makeMove();
-        }
-        else if (msg.startsWith("PASS")) {
-            syncBoard();
-        }
         else if (msg.startsWith("ERROR")) {
-            syncBoard();
             if (lastMoveFailed) {
                 twoLastMovesFailed = true;
             }
@@ -85,24 +67,24 @@ public class BotHandler implements Connection {
     }
 
     private void makeMove() {
-        List<Position> empty = new ArrayList<>();
-
-        for (int y = 0; y < board.getSize(); y++)
-            for (int x = 0; x < board.getSize(); x++)
-                if (board.get(x, y) == Stone.EMPTY)
-                    empty.add(new Position(x, y));
-
         if (twoLastMovesFailed) {
-            server.handlePass(this);
+            session.handlePass(this);
             lastMoveFailed = twoLastMovesFailed = false;
             return;
         }
-        else if (empty.isEmpty()) {
-            server.handlePass(this);
+
+        // tylko legalne punkty - maska utrzymywana przez grę, czytana pod jej blokadą
+        int p = -1;
+        synchronized (game) {
+            int legalCount = game.legalMoveCount(myColor);
+            if (legalCount > 0) p = game.legalMove(myColor, random.nextInt(legalCount));
+        }
+        if (p < 0) {
+            session.handlePass(this);
             return;
         }
 
-        Position p = empty.get(new Random().nextInt(empty.size()));
-        server.handleRawMove("MOVE " + p.x + " " + p.y, this);
+        int width = game.getBoardWidth();
+        session.handleRawMove("MOVE " + (p % width) + " " + (p / width), this);
     }
 }
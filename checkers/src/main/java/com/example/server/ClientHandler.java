@@ -4,30 +4,173 @@ import com.example.model.Player;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Obsługa jednego klienta: oczekuje pierwszej linii "JOIN <name>",
- * potem akceptuje tylko polecenia typu "MOVE x y".
+ * Obsługa jednego klienta: oczekuje pierwszej linii "JOIN <name>" (albo "CREATE",
+ * "JOIN <name> <id>" - patrz {@link Server}), potem przekazuje polecenia swojej partii.
+ * Po fladze {@code BINARY} w pierwszej linii polecenia i odpowiedzi idą jako ramki ({@link Frames}).
+ *
+ * {@code send} tylko dopisuje bajty do kolejki połączenia; do gniazda pisze jedno zadanie
+ * naraz na wykonawcy zapisu (tym samym co wątki obsługi - wirtualnym w trybie virtual), więc
+ * wątki rozsyłania nie czekają na wolnego klienta, a połączenie nie ma osobnego wątku zapisu.
+ * Gdy w kolejce zbierze się więcej niż {@link NioTransport#MAX_PENDING_BYTES}, połączenie
+ * jest zamykane.
  */
 public class ClientHandler implements Runnable, Connection {
     private final Server server;
     private final Socket socket;
-    private Player player;
-    private BufferedReader in;
+    private final Executor writers;
+    private volatile Player player;
+    private GameSession session;
+    // bajty z gniazda: linie czytane ręcznie, żeby po pierwszej linii nic nie zostało w buforze znaków
+    private DataInputStream in;
+    private final ByteArrayOutputStream lineBytes = new ByteArrayOutputStream(128);
     private PrintWriter out;
+    // surowy strumień gniazda dla paczek zakodowanych raz
+    private OutputStream rawOut;
+    private volatile boolean framed = false;
+    // bajty do wysłania (zadanie zapisu); CLOSE - zamknij po zapisaniu wcześniejszych
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+    private final Queue<ByteBuffer> writes = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final CountDownLatch writesDone = new CountDownLatch(1);
+    private volatile boolean closed = false;
+    // koniec partii: gniazdo zamykane po wysłaniu ostatnich wiadomości
+    private final AutoCloseable scopeMember = () -> schedule(CLOSE);
 
     public ClientHandler(Server server, Socket socket) {
-        this.server = server; this.socket = socket;
+        this(server, socket, server.getWriters());
+    }
+
+    /** @param writers wykonawca zadań zapisu do gniazda (najwyżej jedno naraz na połączenie) */
+    public ClientHandler(Server server, Socket socket, Executor writers) {
+        this.server = server; this.socket = socket; this.writers = writers;
     }
 
     public void setPlayer(Player p) { this.player = p; }
     public Player getPlayer() { return player; }
 
-    public void send(String msg) {
-        if (out != null) {
-            out.println(msg);
-            out.flush();
+    public synchronized void send(String msg) {
+        if (rawOut == null) {
+            // bez gniazda (np. writer ustawiony przez setOut) - zapis od razu
+            if (out != null) {
+                out.println(msg);
+                out.flush();
+            }
+            return;
+        }
+        if (framed) enqueue(Frames.text(msg));
+        else enqueue(ByteBuffer.wrap((msg + "\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Paczka linii jednego zdarzenia: wspólne bajty, jeden wpis w kolejce. */
+    @Override
+    public synchronized void send(MessageBatch batch) {
+        if (rawOut == null) {
+            Connection.super.send(batch);
+            return;
+        }
+        enqueue(framed ? batch.framed() : batch.encoded());
+    }
+
+    @Override
+    public synchronized boolean useFrames() {
+        if (rawOut == null) return false;
+        framed = true;
+        return true;
+    }
+
+    @Override
+    public long backlog() {
+        return pendingBytes.get();
+    }
+
+    private void enqueue(ByteBuffer buf) {
+        if (closed) return;
+        if (pendingBytes.addAndGet(buf.remaining()) > NioTransport.MAX_PENDING_BYTES) {
+            // klient nie odbiera - rozłączenie zamiast rosnącej kolejki
+            System.out.println("Client too slow, disconnecting");
+            closed = true;
+            writes.clear();
+            try { socket.close(); } catch (IOException ignored) {}
+            return;
+        }
+        schedule(buf);
+    }
+
+    private void schedule(ByteBuffer buf) {
+        writes.add(buf);
+        if (draining.compareAndSet(false, true)) {
+            try {
+                writers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+    }
+
+    // ostatnie wiadomości (np. ERROR przed rozłączeniem) wysłane przed zamknięciem gniazda;
+    // klient, który nie odbiera, nie trzyma wątku obsługi dłużej niż sekundę
+    private void closeAfterWrites() {
+        if (rawOut != null) {
+            schedule(CLOSE);
+            try {
+                writesDone.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
+        try { socket.close(); } catch (IOException ignored) {}
+    }
+
+    // zadanie zapisu: kolejka do gniazda, jeden flush na opróżnioną kolejkę
+    private void drain() {
+        byte[] chunk = new byte[8192];
+        try {
+            while (true) {
+                ByteBuffer buf;
+                while ((buf = writes.poll()) != null) {
+                    if (buf == CLOSE) {
+                        rawOut.flush();
+                        finish();
+                        return;
+                    }
+                    int n = buf.remaining();
+                    while (buf.hasRemaining()) {
+                        int k = Math.min(chunk.length, buf.remaining());
+                        buf.get(chunk, 0, k);
+                        rawOut.write(chunk, 0, k);
+                    }
+                    pendingBytes.addAndGet(-n);
+                }
+                rawOut.flush();
+                draining.set(false);
+                // wpis dodany po opróżnieniu kolejki - dokończ w tym samym zadaniu
+                if (writes.isEmpty() || !draining.compareAndSet(false, true)) return;
+            }
+        } catch (IOException e) {
+            // rozłączenie zauważy pętla czytająca
+            finish();
+        }
+    }
+
+    // koniec zapisów: gniazdo zamknięte, kolejne send pomijane (draining zostaje ustawione)
+    private void finish() {
+        closed = true;
+        writes.clear();
+        try { socket.close(); } catch (IOException ignored) {}
+        writesDone.countDown();
     }
 
     public void setOut(PrintWriter out) {
@@ -38,55 +181,68 @@ public class ClientHandler implements Runnable, Connection {
     @Override
     public void run() {
         try {
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream(), true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            rawOut = new BufferedOutputStream(socket.getOutputStream());
             send("WELCOME");
-            String line = in.readLine();
+            String line = readLine();
             if (line == null) return;
-            String[] parts = line.trim().split("\\s+", 2);
-            if (parts.length < 2 || !parts[0].equalsIgnoreCase("JOIN")) {
-                send("ERROR Expecting: JOIN <name>");
-                socket.close();
-                return;
-            }
-            String name = parts[1];
-            boolean ok = server.registerClient(this, name);
-            if (!ok) { socket.close(); return; }
-
-            // główna pętla czytająca ruchy
-            while ((line = in.readLine()) != null) {
-                line = line.trim(); 
-                if (line.equalsIgnoreCase("PASS")) { 
-                    server.handlePass(this); continue; 
-                } 
-                else if (line.equalsIgnoreCase("RESIGN"))
-                {
-                    server.handleResign(this); continue;
-                }
-                else if (line.equalsIgnoreCase("ACCEPT"))
-                {
-                    server.handleAccept(this); continue;
-                }
-                else if (line.equalsIgnoreCase("RESUME"))
-                {
-                    server.handleResume(this); continue;
-                }
+            session = server.open(line, this);
+            if (session == null) return;
+            // koniec partii zamyka gniazdo - readLine kończy się i wątek też
+            if (!session.getScope().join(scopeMember)) return;
 
-                if (line.toUpperCase().startsWith("MARK")) 
-                { 
-                    server.handleMark(line, this); continue; 
-                }
-                else if (line.toUpperCase().startsWith("MOVE")) 
-                { 
-                    server.handleRawMove(line, this); continue; 
+            // główna pętla czytająca polecenia - wykonuje je wątek shardu partii
+            if (framed) {
+                readFrames();
+            } else {
+                while ((line = readLine()) != null) {
+                    server.dispatch(session, line, this);
                 }
-
-                send("ERROR Unknown command");
             }
+        } catch (EOFException e) {
+            // klient zamknął połączenie w środku ramki
         } catch (IOException e) {
             System.out.println("Client disconnected: " + e.getMessage());
         } finally {
-            try { socket.close(); } catch (IOException ignored) {}
+            if (session != null) {
+                session.getScope().leave(scopeMember);
+                server.disconnect(session, this);
+            }
+            closeAfterWrites();
+        }
+    }
+
+    // linia UTF-8 do \n (bez \r); null na końcu strumienia
+    private String readLine() throws IOException {
+        lineBytes.reset();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (lineBytes.size() == 0) return null;
+                break;
+            }
+            lineBytes.write(b);
+            if (lineBytes.size() > NioTransport.MAX_LINE) throw new IOException("Line too long");
+        }
+        String line = lineBytes.toString(StandardCharsets.UTF_8);
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    // pętla ramek: nagłówek i dane do jednego bufora używanego ponownie
+    private void readFrames() throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(Frames.HEADER + NioTransport.MAX_LINE);
+        byte[] bytes = frame.array();
+        while (true) {
+            int first = in.read();
+            if (first < 0) return;
+            bytes[0] = (byte) first;
+            in.readFully(bytes, 1, Frames.HEADER - 1);
+            frame.clear();
+            int length = Frames.peekLength(frame);
+            if (length > NioTransport.MAX_LINE) throw new IOException("Frame too long: " + length);
+            in.readFully(bytes, Frames.HEADER, length);
+            frame.limit(Frames.HEADER + length);
+            server.dispatch(session, frame, this);
         }
     }
 }
\ No newline at end of file
@@ -3,6 +3,25 @@ import com.example.model.Player;
 
 public interface Connection {
     void send(String msg);
+
+    /** Linie z jednego zdarzenia naraz; domyślnie po kolei przez {@link #send(String)}. */
+    default void send(MessageBatch batch) {
+        for (int i = 0; i < batch.lineCount(); i++) send(batch.line(i));
+    }
+
+    /** Bajty przyjęte do wysłania, ale jeszcze niewysłane (0 dla połączeń blokujących). */
+    default long backlog() {
+        return 0;
+    }
+
+    /**
+     * Przełącza połączenie na ramki ({@link Frames}) - wiadomości wysłane później idą jako ramki.
+     * Zwraca false, gdy połączenie ich nie obsługuje.
+     */
+    default boolean useFrames() {
+        return false;
+    }
+
     void setPlayer(Player p);
     Player getPlayer();
 }
@@ -0,0 +1,190 @@
+package com.example.server;
+
+import com.example.model.BoardCodec;
+import com.example.model.BoardSnapshot;
+import com.example.model.Stone;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binarny protokół ramek - opcjonalny, obok protokołu linii.
+ *
+ * Klient włącza go flagą {@link #FLAG} na końcu pierwszej linii (np. {@code JOIN <nazwa> BINARY}).
+ * Linia {@code WELCOME} i pierwsza linia klienta są tekstem; wszystko po niej w obie strony to ramki:
+ * bajt kodu, dwa bajty długości danych (bez znaku, big-endian) i dane.
+ *
+ * Polecenia gracza mają stałe dane (ruch: dwa bajty współrzędnych), więc serwer nie dzieli
+ * tekstu. Delta i klatka kluczowa niosą liczby i zapis {@link BoardCodec} bez base64 - plansza
+ * to jedna ramka o znanej długości, a nie kilka linii. Pozostałe wiadomości idą jako tekst UTF-8
+ * w ramce {@link #TEXT}. Kodowanie i odczyt działają na przekazanych buforach, bez pośrednich
+ * tablic ani tekstu.
+ */
+public final class Frames {
+    /** Flaga pierwszej linii włączająca ramki. */
+    public static final String FLAG = "BINARY";
+    /** Kod i długość. */
+    public static final int HEADER = 3;
+    /** Najdłuższe dane ramki (długość zapisana na dwóch bajtach). */
+    public static final int MAX_PAYLOAD = 0xFFFF;
+
+    // polecenia klienta
+    /** Ruch: x, y (po bajcie). */
+    public static final byte MOVE = 1;
+    public static final byte PASS = 2;
+    public static final byte RESIGN = 3;
+    public static final byte ACCEPT = 4;
+    public static final byte RESUME = 5;
+    public static final byte SYNC = 6;
+    /** Oznaczenie grupy: x, y, 1 - martwa / 0 - żywa. */
+    public static final byte MARK = 7;
+
+    /** Linia protokołu tekstowego w UTF-8 (bez {@code \n}); w obie strony. */
+    public static final byte TEXT = 16;
+
+    // wiadomości serwera
+    /** Delta: numer (int), x, y, kolor, potem pary x, y zbitych punktów. */
+    public static final byte DELTA = 17;
+    /** Klatka kluczowa: numer (int), zapis {@link BoardCodec}. */
+    public static final byte KEYFRAME = 18;
+
+    private Frames() {}
+
+    /** Długość danych ramki zaczynającej się na pozycji bufora albo -1, gdy brak całego nagłówka. */
+    public static int peekLength(ByteBuffer in) {
+        if (in.remaining() < HEADER) return -1;
+        return in.getShort(in.position() + 1) & 0xFFFF;
+    }
+
+    /** Polecenie bez danych. */
+    public static void putCommand(ByteBuffer out, byte opcode) {
+        out.put(opcode).putShort((short) 0);
+    }
+
+    public static void putMove(ByteBuffer out, int x, int y) {
+        out.put(MOVE).putShort((short) 2).put((byte) x).put((byte) y);
+    }
+
+    public static void putMark(ByteBuffer out, int x, int y, boolean dead) {
+        out.put(MARK).putShort((short) 3).put((byte) x).put((byte) y).put((byte) (dead ? 1 : 0));
+    }
+
+    /** Długość ramki TEXT dla linii. */
+    public static int textFrameLength(CharSequence text) {
+        return HEADER + utf8Length(text);
+    }
+
+    /**
+     * Ramka TEXT; UTF-8 kodowany znak po znaku prosto do bufora.
+     *
+     * @throws IllegalArgumentException gdy tekst nie mieści się w jednej ramce
+     */
+    public static void putText(ByteBuffer out, CharSequence text) {
+        int length = utf8Length(text);
+        if (length > MAX_PAYLOAD) throw new IllegalArgumentException("Text too long for a frame: " + length);
+        out.put(TEXT).putShort((short) length);
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                out.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                   .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?'); // samotny surogat - jak String.getBytes
+            } else {
+                out.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /** Nowy bufor z jedną ramką TEXT, gotowy do zapisu. */
+    public static ByteBuffer text(CharSequence text) {
+        ByteBuffer buf = ByteBuffer.allocate(textFrameLength(text));
+        putText(buf, text);
+        buf.flip();
+        return buf;
+    }
+
+    /** Tekst z danych ramki TEXT (od pozycji, {@code length} bajtów). */
+    public static String getText(ByteBuffer in, int length) {
+        String text;
+        if (in.hasArray()) {
+            text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return text;
+    }
+
+    public static int deltaFrameLength(int captures) {
+        return HEADER + 7 + 2 * captures;
+    }
+
+    /** Ramka DELTA; {@code captured} to indeksy punktów ({@code y * width + x}). */
+    public static void putDelta(ByteBuffer out, int seq, int x, int y, Stone color, int[] captured, int width) {
+        out.put(DELTA).putShort((short) (deltaFrameLength(captured.length) - HEADER))
+           .putInt(seq).put((byte) x).put((byte) y).put(stoneCode(color));
+        for (int p : captured) {
+            out.put((byte) (p % width)).put((byte) (p / width));
+        }
+    }
+
+    public static int keyframeFrameLength(int width, int height) {
+        return HEADER + 4 + BoardCodec.encodedLength(width, height);
+    }
+
+    public static void putKeyframe(ByteBuffer out, int seq, BoardSnapshot snapshot) {
+        int width = snapshot.getWidth();
+        int height = snapshot.getHeight();
+        out.put(KEYFRAME).putShort((short) (keyframeFrameLength(width, height) - HEADER)).putInt(seq);
+        BoardCodec.encode(snapshot, out);
+    }
+
+    /** Kod koloru jak w {@link BoardCodec}: 0 - puste, 1 - czarny, 2 - biały. */
+    public static byte stoneCode(Stone s) {
+        return (byte) (s == Stone.BLACK ? 1 : s == Stone.WHITE ? 2 : 0);
+    }
+
+    public static Stone stone(int code) {
+        return code == 1 ? Stone.BLACK : code == 2 ? Stone.WHITE : Stone.EMPTY;
+    }
+
+    /** Słowo polecenia protokołu tekstowego dla kodu bez danych (PASS, RESIGN, ...). */
+    public static String commandName(byte opcode) {
+        switch (opcode) {
+            case PASS: return "PASS";
+            case RESIGN: return "RESIGN";
+            case ACCEPT: return "ACCEPT";
+            case RESUME: return "RESUME";
+            case SYNC: return "SYNC";
+            default: throw new IllegalArgumentException("Not a command without data: " + opcode);
+        }
+    }
+
+    private static int utf8Length(CharSequence text) {
+        int n = text.length();
+        int length = n;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.server;
+
+import com.example.model.Board;
+import com.example.rules.KoRule;
+import com.example.integration.GamePersistenceClient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejestr partii jednego serwera.
+ *
+ * Partie są rozdzielone między stałą liczbę shardów po numerze partii
+ * ({@code id % shards}); shard to jeden wątek, który po kolei wykonuje polecenia
+ * swoich partii. Jedna partia nie potrzebuje więc blokad między graczami, a tysiące
+ * partii dzielą kilka wątków i skalują się z liczbą rdzeni. Rozsyłanie i zapis
+ * (etapy {@link MovePipeline}) działają na pulach wspólnych dla wszystkich partii; widzowie
+ * mają własną pulę, więc nie spowalniają rozsyłania do graczy.
+ */
+public final class GameRegistry implements AutoCloseable {
+    /** Pojemność potoku jednej partii (zdarzeń). */
+    static final int PIPELINE_CAPACITY = 256;
+
+    private final ConcurrentMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService[] shards;
+    private final ExecutorService fanoutPool;
+    private final ExecutorService persistPool;
+    private final ExecutorService spectatorPool;
+    private final ScheduledExecutorService spectatorTimer;
+    private volatile GamePersistenceClient persistenceClient = null;
+
+    /** Rejestr z jednym shardem na rdzeń. */
+    public GameRegistry() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GameRegistry(int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = Executors.newSingleThreadExecutor(daemon("shard-" + i));
+        }
+        // rozsyłanie tylko dopisuje do kolejek połączeń (nie pisze do gniazd) - wątków tyle co rdzeni
+        this.fanoutPool = Executors.newFixedThreadPool(cores, daemon("fanout"));
+        // zapis przez HTTP blokuje wątek - więcej wątków niż rdzeni
+        this.persistPool = Executors.newFixedThreadPool(Math.max(4, 2 * cores), daemon("persist"));
+        // wysyłanie do widzów - wątki tylko na czas wysyłania, blokujący zapis nie wstrzymuje innych
+        this.spectatorPool = Executors.newCachedThreadPool(daemon("spectators"));
+        this.spectatorTimer = Executors.newSingleThreadScheduledExecutor(daemon("spectator-timer"));
+    }
+
+    /** Nowa partia; numery partii rosną od 1. */
+    public GameSession create(int width, int height, KoRule koRule) {
+        Board.checkDimensions(width, height);
+        long id = nextId.getAndIncrement();
+        GameSession session = new GameSession(id, this, width, height, koRule,
+                fanoutPool, persistPool, spectatorPool, spectatorTimer, PIPELINE_CAPACITY);
+        sessions.put(id, session);
+        return session;
+    }
+
+    /** Partia o numerze albo null. */
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /** Usuwa zakończoną partię z rejestru (klienci mogą jeszcze dostać ostatnie zdarzenia). */
+    public void remove(long id) {
+        sessions.remove(id);
+    }
+
+    /** Liczba aktywnych partii. */
+    public int size() {
+        return sessions.size();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /** Numer shardu obsługującego partię. */
+    public int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shards.length);
+    }
+
+    /** Wykonuje zadanie na wątku shardu partii {@code id}. */
+    public void execute(long id, Runnable task) {
+        shards[shardOf(id)].execute(task);
+    }
+
+    public GamePersistenceClient getPersistenceClient() {
+        return persistenceClient;
+    }
+
+    /** Klient zapisu dla nowych i już istniejących partii. */
+    public void setPersistenceClient(GamePersistenceClient client) {
+        this.persistenceClient = client;
+        for (GameSession s : sessions.values()) s.setPersistenceClient(client);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService shard : shards) shard.shutdown();
+        fanoutPool.shutdown();
+        persistPool.shutdown();
+        spectatorPool.shutdown();
+        spectatorTimer.shutdown();
+        try {
+            for (ExecutorService shard : shards) shard.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory daemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
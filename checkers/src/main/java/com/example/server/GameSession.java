@@ -0,0 +1,734 @@
+package com.example.server;
+
+import com.example.model.Player;
+import com.example.model.PlayerFactory;
+import com.example.model.Move;
+import com.example.model.BoardCodec;
+import com.example.model.BoardSnapshot;
+import com.example.model.GameState;
+import com.example.model.MoveResult;
+import com.example.model.MoveType;
+import com.example.model.Position;
+import com.example.game.Game;
+import com.example.game.GameListener;
+import com.example.model.Stone;
+import com.example.rules.KoRule;
+import com.example.integration.GamePersistenceClient;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Jedna partia na serwerze: gra, do 2 graczy i potok zdarzeń.
+ *
+ * Polecenia graczy wykonywane są na wątku shardu przydzielonym tej partii
+ * ({@link GameRegistry#shardOf}), więc partia obsługuje je po kolei, a różne partie
+ * działają równolegle na różnych rdzeniach. Odpowiedzi, rozsyłanie i zapis idą przez
+ * {@link MovePipeline}, którego etapy działają na pulach wspólnych dla wszystkich partii.
+ * Widzowie ({@code WATCH}) mają osobny etap i ograniczone kolejki ({@link Spectator}),
+ * więc nawet tysiące widzów nie opóźniają zdarzeń dla graczy.
+ */
+public class GameSession implements GameListener {
+    /** Co ile ruchów rozsyłana jest klatka kluczowa (cała plansza) obok delt. */
+    public static final int KEYFRAME_INTERVAL = 32;
+
+    private final long id;
+    private final GameRegistry registry;
+    private final Game game;
+    private final PlayerFactory playerFactory = new PlayerFactory();
+    private final ConcurrentMap<String, Connection> clients = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Connection, Spectator> spectators = new ConcurrentHashMap<>();
+    private final Executor spectatorPool;
+    private final ScheduledExecutorService spectatorTimer;
+    private final MovePipeline pipeline;
+    // połączenia graczy zamykane razem z partią
+    private final SessionScope scope = new SessionScope();
+    // paczki etapów fanout i watch (etap działa najwyżej na jednym wątku naraz)
+    private final MessageBatch.Builder fanoutBatch = new MessageBatch.Builder();
+    private final MessageBatch.Builder watchBatch = new MessageBatch.Builder();
+    // ostatni stan planszy widziany przez etap widzów - klatka dla tych, co nie nadążają
+    private volatile Latest latest;
+
+    private boolean lastMoveWasPass = false;
+    // numer stanu planszy w deltach i klatkach kluczowych
+    private int boardSeq = 0;
+    private boolean blackAccepted = false;
+    private boolean whiteAccepted = false;
+    private volatile boolean closed = false;
+
+    // Persistence integration
+    private volatile GamePersistenceClient persistenceClient;
+    private volatile Long externalGameId = null;
+
+    GameSession(long id, GameRegistry registry, int width, int height, KoRule koRule,
+                Executor fanoutPool, Executor persistPool, Executor spectatorPool,
+                ScheduledExecutorService spectatorTimer, int pipelineCapacity) {
+        this.id = id;
+        this.spectatorPool = spectatorPool;
+        this.spectatorTimer = spectatorTimer;
+        this.registry = registry;
+        this.persistenceClient = registry.getPersistenceClient();
+        this.game = new Game(width, height, koRule);
+        this.game.addListener(this);
+        this.latest = new Latest(0, game.getSnapshot());
+        this.pipeline = new MovePipeline(pipelineCapacity)
+                .addStage("fanout-" + id, this::fanOut, fanoutPool, this::resync)
+                .addStage("watch-" + id, this::watchFanOut, fanoutPool, this::resync)
+                .addStage("persist-" + id, this::persist, persistPool);
+        pipeline.start();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    /** Zasięg partii - zasoby graczy zamykane, gdy partia się kończy. */
+    public SessionScope getScope() {
+        return scope;
+    }
+
+    public Long getExternalGameId() {
+        return externalGameId;
+    }
+
+    public void setPersistenceClient(GamePersistenceClient client) {
+        this.persistenceClient = client;
+    }
+
+    /** Czy można jeszcze dołączyć (mniej niż 2 graczy, partia nie zamknięta). */
+    public boolean isOpen() {
+        return !closed && clients.size() < 2;
+    }
+
+    public int getPlayerCount() {
+        return clients.size();
+    }
+
+    public int getSpectatorCount() {
+        return spectators.size();
+    }
+
+    /** Wykonuje zadanie na wątku shardu tej partii. */
+    public void execute(Runnable task) {
+        registry.execute(id, task);
+    }
+
+    /**
+     * Rejestracja klienta (na wątku shardu). Zwraca false jeśli gra pełna.
+     */
+    public boolean registerClient(Connection handler, String name) {
+        if (closed || clients.size() >= 2) {
+            handler.send("ERROR game already has two players");
+            return false;
+        }
+        Player p = playerFactory.create(name);
+        boolean joined;
+        synchronized (game) {
+            joined = game.join(p);
+        }
+        if (!joined) {
+            handler.send("ERROR cannot join game");
+            return false;
+        }
+        handler.setPlayer(p);
+        // ASSIGN przed dopisaniem do odbiorców - wcześniejsze zdarzenia w etapie fanout nie mogą go wyprzedzić
+        handler.send("ASSIGN " + p.getId() + " " + p.getColor());
+        clients.put(p.getId(), handler);
+        broadcast("INFO Player " + p.getName() + " joined as " + p.getColor());
+        if (clients.size() == 2) {
+            broadcast("START");
+            broadcastBoard();
+            broadcast("INFO Current turn: " + game.getCurrentTurn());
+            // utworzenie partii w bazie robi etap persist
+            pipeline.publishStart();
+        }
+        return true;
+    }
+
+    /**
+     * Dołącza widza (na wątku shardu): {@code WATCHING <id>}, klatka kluczowa, potem
+     * bieżące zdarzenia. Zwraca false, gdy partia już się skończyła.
+     */
+    public boolean addSpectator(Connection conn) {
+        if (closed) {
+            conn.send("ERROR Game is over");
+            return false;
+        }
+        spectators.put(conn, new Spectator(conn, spectatorPool, spectatorTimer, this::latestKeyframe));
+        reply(conn, "WATCHING " + id);
+        synchronized (game) {
+            pipeline.publishBoard(game.getSnapshot(), boardSeq, conn);
+            if (game.getState() == GameState.RUNNING) reply(conn, "INFO Current turn: " + game.getCurrentTurn());
+        }
+        return true;
+    }
+
+    /**
+     * Klient się rozłączył. W trakcie gry przeciwnik wygrywa walkowerem; partia bez graczy
+     * zdalnych jest zamykana.
+     */
+    public void leave(Connection origin) {
+        if (spectators.remove(origin) != null) return;
+        Player p = origin.getPlayer();
+        if (p == null || !clients.remove(p.getId(), origin)) return;
+        broadcast("INFO Player " + p.getName() + " left");
+
+        GameState state = game.getState();
+        if (clients.size() == 1 && (state == GameState.RUNNING || state == GameState.SCORING)) {
+            Stone winner = (p.getColor() == Stone.BLACK) ? Stone.WHITE : Stone.BLACK;
+            broadcast("WINNER " + winner);
+            broadcast("END");
+            synchronized (game) {
+                game.setState(GameState.FINISHED);
+            }
+            pipeline.publishFinish((winner == Stone.BLACK) ? "BLACK_WIN" : "WHITE_WIN");
+            close();
+            return;
+        }
+        boolean anyRemote = clients.values().stream().anyMatch(c -> !(c instanceof BotHandler));
+        if (!anyRemote) close();
+    }
+
+    /** Jedna linia polecenia od gracza (na wątku shardu). */
+    public void handleLine(String line, Connection origin) {
+        line = line.trim();
+        if (spectators.containsKey(origin)) {
+            // widz może tylko poprosić o klatkę
+            if (line.equalsIgnoreCase("SYNC")) handleSync(origin);
+            else reply(origin, "ERROR Spectators can only SYNC");
+            return;
+        }
+        if (line.equalsIgnoreCase("PASS")) {
+            handlePass(origin);
+        } else if (line.equalsIgnoreCase("RESIGN")) {
+            handleResign(origin);
+        } else if (line.equalsIgnoreCase("ACCEPT")) {
+            handleAccept(origin);
+        } else if (line.equalsIgnoreCase("RESUME")) {
+            handleResume(origin);
+        } else if (line.equalsIgnoreCase("SYNC")) {
+            handleSync(origin);
+        } else if (line.toUpperCase().startsWith("MARK")) {
+            handleMark(line, origin);
+        } else if (line.toUpperCase().startsWith("MOVE")) {
+            handleRawMove(line, origin);
+        } else {
+            reply(origin, "ERROR Unknown command");
+        }
+    }
+
+    /**
+     * Polecenie z ramki protokołu binarnego ({@link Frames}) - jak {@link #handleLine},
+     * ale z gotowymi liczbami zamiast tekstu do podziału.
+     */
+    public void handleCommand(int opcode, int x, int y, boolean dead, Connection origin) {
+        if (spectators.containsKey(origin)) {
+            if (opcode == Frames.SYNC) handleSync(origin);
+            else reply(origin, "ERROR Spectators can only SYNC");
+            return;
+        }
+        switch (opcode) {
+            case Frames.MOVE: handleMove(x, y, origin); break;
+            case Frames.PASS: handlePass(origin); break;
+            case Frames.RESIGN: handleResign(origin); break;
+            case Frames.ACCEPT: handleAccept(origin); break;
+            case Frames.RESUME: handleResume(origin); break;
+            case Frames.SYNC: handleSync(origin); break;
+            case Frames.MARK: handleMark(x, y, dead, origin); break;
+            default: reply(origin, "ERROR Unknown command");
+        }
+    }
+
+    /**
+     * Handle move string from a client ("MOVE x y").
+     */
+    public void handleRawMove(String raw, Connection origin) {
+        Player p = origin.getPlayer();
+        playMove(p == null ? null : Move.parse(raw, p.getId()), origin);
+    }
+
+    /** Ruch na (x, y) - z ramki binarnej, bez parsowania tekstu. */
+    public void handleMove(int x, int y, Connection origin) {
+        Player p = origin.getPlayer();
+        playMove(p == null ? null : new Move(MoveType.MOVE, new Position(x, y), p.getId()), origin);
+    }
+
+    // m == null: zły format ruchu albo klient bez gracza
+    private void playMove(Move m, Connection origin) {
+        Player originPlayer = origin.getPlayer();
+        if (originPlayer == null) {
+            reply(origin, "ERROR You are not registered (no JOIN received)");
+            return;
+        }
+
+        synchronized (game) {
+            if (game.getState() != GameState.RUNNING) {
+                reply(origin, "ERROR Game not running");
+                return;
+            }
+            if (originPlayer.getColor() != game.getCurrentTurn()) {
+                reply(origin, "ERROR Not your turn");
+                return;
+            }
+
+            if (m == null) {
+                reply(origin, "ERROR bad command. Use: MOVE <x> <y>");
+                return;
+            }
+
+            // delegate to game
+            MoveResult res = game.applyMove(m);
+            if (!res.isOk()) {
+                reply(origin, "ERROR " + res.getErrorMessage());
+            } // jeśli sukces, ruchy są wysyłane do clients przez onMoveApplied() (observer)
+        }
+    }
+
+    public void handlePass(Connection origin) {
+        Player p = origin.getPlayer();
+        if (p == null) {
+            reply(origin, "ERROR You are not registered");
+            return;
+        }
+
+        synchronized (game) {
+            if (game.getState() != GameState.RUNNING) {
+                reply(origin, "ERROR Game not running");
+                return;
+            }
+            if (p.getColor() != game.getCurrentTurn()) {
+                reply(origin, "ERROR Not your turn");
+                return;
+            }
+
+            broadcast("PASS " + p.getId());
+
+            if (lastMoveWasPass) {
+                game.pass(); // drugi pas też trafia do zapisu partii
+                game.setState(GameState.SCORING);
+                broadcast("SCORING");
+                broadcast("INFO Mark dead groups or request resume");
+                return;
+            }
+
+            lastMoveWasPass = true;
+            game.pass();
+            broadcast("INFO Next turn: " + game.getCurrentTurn());
+        }
+    }
+
+    public void handleResign(Connection origin) {
+        Player p = origin.getPlayer();
+        if (p == null) {
+            reply(origin, "ERROR You are not registered");
+            return;
+        }
+
+        synchronized (game) {
+            if (game.getState() != GameState.RUNNING) {
+                reply(origin, "ERROR Game not running");
+                return;
+            }
+            if (p.getColor() != game.getCurrentTurn()) {
+                reply(origin, "ERROR Not your turn");
+                return;
+            }
+
+            //ogloszenie rezygnacji
+            broadcast("RESIGN " + p.getId());
+
+            //zmien ture i wyswietl zwyciezce
+            game.nextTurn();
+            reply(origin, "WINNER " + game.getCurrentTurn());
+
+            // koniec gry
+            broadcast("END");
+            game.setState(GameState.FINISHED);
+
+            // zapis wyniku w etapie persist
+            pipeline.publishFinish((game.getCurrentTurn() == Stone.BLACK) ? "BLACK_WIN" : "WHITE_WIN");
+        }
+        close();
+    }
+
+    public void handleResume(Connection origin) {
+        if (game.getState() != GameState.SCORING) {
+            reply(origin, "ERROR Not in scoring phase");
+            return;
+        }
+
+        Player requester = origin.getPlayer();
+        Stone requesterColor = requester.getColor();
+
+        Stone nextTurn;
+
+        //przeciwnik gra pierwszy
+        if (requesterColor == Stone.BLACK) {
+            nextTurn = Stone.WHITE;
+        } else {
+            nextTurn = Stone.BLACK;
+        }
+
+        synchronized (game) {
+            game.resume(nextTurn);
+        }
+        //powiadom klientow
+        broadcast("RESUME");
+        broadcast("INFO Next turn: " + nextTurn);
+    }
+
+    public void handleMark(String raw, Connection origin) {
+        if (!canMark(origin)) return;
+
+        // MARK x y DEAD/ALIVE
+        String[] parts = raw.split("\\s+");
+        if (parts.length != 4) {
+            reply(origin, "ERROR Use: MARK <x> <y> <DEAD|ALIVE>");
+            return;
+        }
+
+        int x, y;
+        try {
+            x = Integer.parseInt(parts[1]);
+            y = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            reply(origin, "ERROR Bad coordinates");
+            return;
+        }
+
+        String status = parts[3].toUpperCase();
+        if (!status.equals("DEAD") && !status.equals("ALIVE")) {
+            reply(origin, "ERROR Status must be DEAD or ALIVE");
+            return;
+        }
+
+        markGroup(x, y, status.equals("DEAD"), origin);
+    }
+
+    /** Oznaczenie grupy z ramki binarnej. */
+    public void handleMark(int x, int y, boolean dead, Connection origin) {
+        if (canMark(origin)) markGroup(x, y, dead, origin);
+    }
+
+    private boolean canMark(Connection origin) {
+        if (game.getState() != GameState.SCORING) {
+            reply(origin, "ERROR Not in scoring phase");
+            return false;
+        }
+        if (origin.getPlayer() == null) {
+            reply(origin, "ERROR You are not registered");
+            return false;
+        }
+        return true;
+    }
+
+    private void markGroup(int x, int y, boolean dead, Connection origin) {
+        // delegacja do Game
+        boolean ok;
+        synchronized (game) {
+            ok = game.isMarkedGroupOk(x, y, dead);
+        }
+
+        if (!ok) {
+            reply(origin, "ERROR Cannot mark group");
+            return;
+        }
+
+        // powiadom wszystkich - klienci oznaczają grupę u siebie, plansza się nie zmienia
+        broadcast("MARK " + x + " " + y + " " + (dead ? "DEAD" : "ALIVE"));
+    }
+
+    /** Klatka kluczowa na żądanie klienta (np. po zgubionej delcie). */
+    public void handleSync(Connection origin) {
+        synchronized (game) {
+            pipeline.publishBoard(game.getSnapshot(), boardSeq, origin);
+        }
+    }
+
+    public void handleAccept(Connection origin) {
+        if (game.getState() != GameState.SCORING) {
+            reply(origin, "ERROR Not in scoring phase");
+            return;
+        }
+
+        if (origin.getPlayer().getColor() == Stone.BLACK) {
+            blackAccepted = true;
+        } else {
+            whiteAccepted = true;
+        }
+
+        broadcast("ACCEPTED " + origin.getPlayer());
+
+        if (blackAccepted && whiteAccepted) {
+            finishGame();
+        }
+    }
+
+    //przejecie martwych kamieni przeciwnika po skonczonej grze
+    private void finishGame() {
+        int blackTotal;
+        int whiteTotal;
+        synchronized (game) {
+            game.applyFinishToBoard();
+            blackTotal = game.getBlackScore();
+            whiteTotal = game.getWhiteScore();
+            // martwe kamienie zdjęte - nowy stan planszy
+            boardSeq++;
+            broadcastBoard();
+        }
+
+        //pokaz wynik
+        broadcast("SCORE BLACK " + blackTotal + " WHITE " + whiteTotal);
+
+        if (blackTotal > whiteTotal) {
+            broadcast("WINNER BLACK, SCORE BLACK " + blackTotal + " WHITE " + whiteTotal);
+        } else if (whiteTotal > blackTotal) {
+            broadcast("WINNER WHITE, SCORE BLACK " + blackTotal + " WHITE " + whiteTotal);
+        } else {
+            broadcast("WINNER NONE, SCORE BLACK " + blackTotal + " WHITE " + whiteTotal);
+        }
+
+        // zapis wyniku w etapie persist
+        String result;
+        if (blackTotal > whiteTotal) result = "BLACK_WIN";
+        else if (whiteTotal > blackTotal) result = "WHITE_WIN";
+        else result = "DRAW";
+        pipeline.publishFinish(result);
+
+        game.setState(GameState.FINISHED);
+        broadcast("END");
+        close();
+    }
+
+    // GameListener implementation — wywoływane po poprawnym ruchu (pod blokadą gry)
+    @Override
+    public void onMoveApplied(Move move, MoveResult result, BoardSnapshot snapshot) {
+        lastMoveWasPass = false;
+        boardSeq++;
+        // tylko publikacja - rozesłanie i zapis robią etapy potoku
+        List<Position> captures = result.getCaptures();
+        int[] captured = new int[captures == null ? 0 : captures.size()];
+        for (int i = 0; i < captured.length; i++) {
+            Position c = captures.get(i);
+            captured[i] = c.y * snapshot.getWidth() + c.x;
+        }
+        pipeline.publishMove(move, captured, game.getBlackCaptures(), game.getWhiteCaptures(),
+                snapshot, game.getCurrentTurn(), boardSeq);
+    }
+
+    public void broadcast(String msg) {
+        pipeline.publishMessage(msg);
+    }
+
+    /** Klatka kluczowa do wszystkich. */
+    public void broadcastBoard() {
+        pipeline.publishBoard(game.getSnapshot(), boardSeq, null);
+    }
+
+    // odpowiedź do jednego klienta w kolejności z rozsyłanymi zdarzeniami
+    private void reply(Connection target, String msg) {
+        pipeline.publishMessage(msg, target);
+    }
+
+    // zamknięcie partii: usunięcie z rejestru, a po dostarczeniu wcześniejszych zdarzeń
+    // (etap fanout) zamknięcie połączeń z zasięgu partii
+    private void close() {
+        if (closed) return;
+        closed = true;
+        registry.remove(id);
+        pipeline.publishClose();
+        // etapy dostaną jeszcze CLOSE, potem nic
+        pipeline.close();
+    }
+
+    // etap rozsyłania nie nadążył i pominął zdarzenia - klatka kluczowa wyrównuje stan klientów
+    private void resync(long dropped) {
+        synchronized (game) {
+            broadcastBoard();
+        }
+    }
+
+    private void sendToAll(MessageBatch batch) {
+        clients.values().forEach(h -> h.send(batch));
+    }
+
+    // etap fanout: linie protokołu z jednego zdarzenia kodowane raz, jedna paczka na odbiorcę
+    private void fanOut(MovePipeline.Event e) {
+        if (e.getType() == MovePipeline.Type.CLOSE) {
+            scope.close();
+            return;
+        }
+        Connection target = e.getTarget();
+        // wiadomości do widzów wysyła etap watch
+        if (target != null && spectators.containsKey(target)) return;
+        MessageBatch.Builder builder = fanoutBatch.clear();
+        if (!collect(e, builder)) return;
+        MessageBatch batch = builder.build();
+        if (target != null) target.send(batch);
+        else sendToAll(batch);
+    }
+
+    // etap watch: te same paczki do kolejek widzów (dopisanie nie czeka na wysłanie,
+    // wysyłają zadania na puli widzów)
+    private void watchFanOut(MovePipeline.Event e) {
+        if (e.getSnapshot() != null) latest = new Latest(e.getBoardSeq(), e.getSnapshot());
+        Connection target = e.getTarget();
+        Spectator only = null;
+        if (target != null) {
+            only = spectators.get(target);
+            if (only == null) return;
+        } else if (spectators.isEmpty()) {
+            return;
+        }
+        MessageBatch.Builder builder = watchBatch.clear();
+        if (!collect(e, builder)) return;
+        MessageBatch batch = builder.build();
+        if (only != null) only.offer(batch);
+        else spectators.values().forEach(s -> s.offer(batch));
+    }
+
+    // wiadomości zdarzenia (linie i ramki); false, gdy zdarzenie nic nie wysyła
+    private boolean collect(MovePipeline.Event e, MessageBatch.Builder batch) {
+        switch (e.getType()) {
+            case MESSAGE:
+                batch.text(e.getText());
+                break;
+            case MOVE:
+                Move move = e.getMove();
+                batch.text("MOVE " + move.playerId + " " + (move.pos.x) + " " + (move.pos.y));
+                if (e.getCaptures() > 0) {
+                    batch.text("CAPTURE " + e.getCaptures());
+                    batch.text("CAPTURED BY WHITE " + e.getWhiteCaptures());
+                    batch.text("CAPTURED BY BLACK " + e.getBlackCaptures());
+                }
+                BoardSnapshot snapshot = e.getSnapshot();
+                batch.delta(delta(e), e.getBoardSeq(), move.pos.x, move.pos.y,
+                        snapshot.get(move.pos.x, move.pos.y), e.getCaptured(), snapshot.getWidth());
+                if (e.getBoardSeq() % KEYFRAME_INTERVAL == 0) batch.keyframe(keyframe(e), e.getBoardSeq(), snapshot);
+                batch.text("INFO Next turn: " + e.getNextTurn());
+                break;
+            case BOARD:
+                batch.keyframe(keyframe(e), e.getBoardSeq(), e.getSnapshot());
+                break;
+            default:
+                return false;
+        }
+        return true;
+    }
+
+    // najnowsza klatka dla widzów; kodowana raz dla wszystkich, którzy nie nadążyli
+    private MessageBatch latestKeyframe() {
+        Latest l = latest;
+        synchronized (l) {
+            if (l.keyframe == null) {
+                l.keyframe = new MessageBatch.Builder()
+                        .keyframe("KEYFRAME " + l.boardSeq + " " + BoardCodec.toBase64(l.snapshot), l.boardSeq, l.snapshot)
+                        .build();
+            }
+            return l.keyframe;
+        }
+    }
+
+    private static final class Latest {
+        final int boardSeq;
+        final BoardSnapshot snapshot;
+        MessageBatch keyframe;
+
+        Latest(int boardSeq, BoardSnapshot snapshot) {
+            this.boardSeq = boardSeq;
+            this.snapshot = snapshot;
+        }
+    }
+
+    // DELTA <seq> <x> <y> <kolor> [<x>,<y> ...] - postawiony kamień i zbite punkty
+    private static String delta(MovePipeline.Event e) {
+        Move move = e.getMove();
+        BoardSnapshot snapshot = e.getSnapshot();
+        StringBuilder sb = new StringBuilder(32);
+        sb.append("DELTA ").append(e.getBoardSeq()).append(' ')
+          .append(move.pos.x).append(' ').append(move.pos.y).append(' ')
+          .append(snapshot.get(move.pos.x, move.pos.y));
+        int width = snapshot.getWidth();
+        for (int p : e.getCaptured()) {
+            sb.append(' ').append(p % width).append(',').append(p / width);
+        }
+        return sb.toString();
+    }
+
+    // KEYFRAME <seq> <base64> - cała plansza w formacie BoardCodec
+    private static String keyframe(MovePipeline.Event e) {
+        return "KEYFRAME " + e.getBoardSeq() + " " + BoardCodec.toBase64(e.getSnapshot());
+    }
+
+    // etap persist: zapis partii, ruchów i wyniku przez HTTP (może trwać do timeoutu klienta)
+    private void persist(MovePipeline.Event e) {
+        GamePersistenceClient client = this.persistenceClient;
+        if (client == null) return;
+        if (e.getType() == MovePipeline.Type.START) {
+            createExternalGame(client);
+            return;
+        }
+        Long gameId = this.externalGameId;
+        if (gameId == null) return;
+        if (e.getType() == MovePipeline.Type.MOVE) {
+            try {
+                Move move = e.getMove();
+                int toRow = move.pos.x;
+                int toCol = move.pos.y;
+                String extra = "{\"playerId\":\"" + move.playerId + "\"}";
+                client.persistMove(gameId, -1, -1, toRow, toCol, e.getCaptures() > 0, extra);
+            } catch (Exception ex) {
+                System.err.println("Failed to persist move: " + ex.getMessage());
+            }
+        } else if (e.getType() == MovePipeline.Type.FINISH) {
+            try {
+                client.finishGame(gameId, e.getText());
+            } catch (Exception ex) {
+                System.err.println("Failed to persist game finish: " + ex.getMessage());
+            }
+        }
+    }
+
+    // Persist the new game in DB (only once)
+    private void createExternalGame(GamePersistenceClient gpc) {
+        if (this.externalGameId != null) return;
+        try {
+            // determine player names for black and white
+            String blackName = null;
+            String whiteName = null;
+            for (Connection c : clients.values()) {
+                Player pl = c.getPlayer();
+                if (pl == null) continue;
+                if (pl.getColor() == Stone.BLACK) blackName = pl.getName();
+                else if (pl.getColor() == Stone.WHITE) whiteName = pl.getName();
+            }
+            // fallback: if colors not assigned by factory for some reason, pick any two names
+            if (blackName == null || whiteName == null) {
+                for (Connection c : clients.values()) {
+                    Player pl = c.getPlayer();
+                    if (pl == null) continue;
+                    if (blackName == null) blackName = pl.getName();
+                    else if (whiteName == null) whiteName = pl.getName();
+                }
+            }
+
+            Long extId = gpc.createGame(blackName == null ? "Black" : blackName,
+                                        whiteName == null ? "White" : whiteName);
+            if (extId != null) {
+                this.externalGameId = extId;
+                System.out.println("Created external game id = " + this.externalGameId + " for game " + id);
+            } else {
+                System.err.println("Persistence returned null id when creating game");
+            }
+        } catch (Exception ex) {
+            System.err.println("Failed to persist game start: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.server;
+
+import com.example.model.BoardSnapshot;
+import com.example.model.Stone;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Linie protokołu z jednego zdarzenia partii, zakodowane raz (UTF-8, każda z {@code \n}).
+ *
+ * Etap rozsyłania tworzy jedną paczkę na zdarzenie i przekazuje ją wszystkim odbiorcom;
+ * połączenia sieciowe zapisują gotowe bajty jednym wywołaniem i jednym flushem, a pozostałe
+ * (np. bot) dostają linie po kolei. Paczka niesie też te same wiadomości jako ramki
+ * ({@link Frames}) dla klientów protokołu binarnego. Paczka jest niemutowalna i może być
+ * współdzielona między wątkami.
+ */
+public final class MessageBatch {
+    private final String[] lines;
+    private final byte[] bytes;
+    // ramki; dla paczek z samych linii tworzone przy pierwszym użyciu (same ramki TEXT)
+    private volatile byte[] frames;
+
+    private MessageBatch(String[] lines, byte[] frames) {
+        this.lines = lines;
+        this.bytes = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+        this.frames = frames;
+    }
+
+    public static MessageBatch of(List<String> lines) {
+        return new MessageBatch(lines.toArray(new String[0]), null);
+    }
+
+    public static MessageBatch of(String... lines) {
+        return new MessageBatch(lines.clone(), null);
+    }
+
+    public int lineCount() {
+        return lines.length;
+    }
+
+    public String line(int i) {
+        return lines[i];
+    }
+
+    /** Liczba bajtów po zakodowaniu. */
+    public int byteCount() {
+        return bytes.length;
+    }
+
+    /** Zakodowane bajty jako bufor tylko do odczytu (własna pozycja, wspólna zawartość). */
+    public ByteBuffer encoded() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /** Zapisuje zakodowane bajty jednym wywołaniem (bez flush). */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+
+    /** Liczba bajtów ramek. */
+    public int frameByteCount() {
+        return frames().length;
+    }
+
+    /** Ramki jako bufor tylko do odczytu. */
+    public ByteBuffer framed() {
+        return ByteBuffer.wrap(frames()).asReadOnlyBuffer();
+    }
+
+    /** Zapisuje ramki jednym wywołaniem (bez flush). */
+    public void writeFramedTo(OutputStream out) throws IOException {
+        out.write(frames());
+    }
+
+    private byte[] frames() {
+        byte[] f = frames;
+        if (f == null) {
+            // wyścig najwyżej koduje dwa razy to samo
+            int length = 0;
+            for (String line : lines) length += Frames.textFrameLength(line);
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            for (String line : lines) Frames.putText(buf, line);
+            frames = f = buf.array();
+        }
+        return f;
+    }
+
+    /**
+     * Składa paczkę naraz w obu protokołach: linie tekstu i ramki. Delta i klatka kluczowa
+     * trafiają do ramek jako liczby i zapis planszy, a nie jako tekst linii. Bufor ramek jest
+     * używany ponownie między zdarzeniami; jeden obiekt na etap potoku (etap działa najwyżej
+     * na jednym wątku naraz).
+     */
+    static final class Builder {
+        private final List<String> lines = new ArrayList<>(8);
+        private ByteBuffer frames = ByteBuffer.allocate(1024);
+
+        Builder clear() {
+            lines.clear();
+            frames.clear();
+            return this;
+        }
+
+        boolean isEmpty() {
+            return lines.isEmpty();
+        }
+
+        Builder text(String line) {
+            lines.add(line);
+            ensure(Frames.textFrameLength(line));
+            Frames.putText(frames, line);
+            return this;
+        }
+
+        /** Delta: linia {@code DELTA ...} i ramka {@link Frames#DELTA} z tych samych danych. */
+        Builder delta(String line, int seq, int x, int y, Stone color, int[] captured, int width) {
+            lines.add(line);
+            ensure(Frames.deltaFrameLength(captured.length));
+            Frames.putDelta(frames, seq, x, y, color, captured, width);
+            return this;
+        }
+
+        /** Klatka kluczowa: linia {@code KEYFRAME ...} i ramka {@link Frames#KEYFRAME}. */
+        Builder keyframe(String line, int seq, BoardSnapshot snapshot) {
+            lines.add(line);
+            ensure(Frames.keyframeFrameLength(snapshot.getWidth(), snapshot.getHeight()));
+            Frames.putKeyframe(frames, seq, snapshot);
+            return this;
+        }
+
+        MessageBatch build() {
+            byte[] f = new byte[frames.position()];
+            frames.get(0, f);
+            return new MessageBatch(lines.toArray(new String[0]), f);
+        }
+
+        private void ensure(int needed) {
+            if (frames.remaining() >= needed) return;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * frames.capacity(), frames.position() + needed));
+            frames.flip();
+            bigger.put(frames);
+            frames = bigger;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.server;
+
+import com.example.model.BoardSnapshot;
+import com.example.model.Move;
+import com.example.model.Stone;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Potok zdarzeń jednej partii: bufor pierścieniowy, do którego naraz pisze jeden producent,
+ * a czyta wiele etapów.
+ *
+ * Etap reguł (wątek klienta, pod blokadą gry) tylko wpisuje zdarzenie do wolnego slotu
+ * i przesuwa kursor. Każdy etap ({@link Stage}) ma własny licznik i działa jako zadanie
+ * na swoim wykonawcy (własny wątek albo pula współdzielona przez wiele partii), więc
+ * np. rozsyłanie do klientów i zapis do bazy działają niezależnie: wolne gniazdo albo
+ * wolna baza opóźniają tylko swój etap, a nie sprawdzanie następnego ruchu.
+ * Etap jest uruchomiony najwyżej raz naraz i widzi zdarzenia w kolejności publikacji.
+ *
+ * Slot obsłużony przez wszystkie etapy jest nadpisywany w miejscu. Producent nigdy nie czeka:
+ * gdy etap zostaje o cały bufor w tyle, zdarzenie z zajętego slotu trafia do kolejki
+ * przepełnienia tego etapu, a w pierścieniu zastępuje je nowy obiekt (etap, który je
+ * właśnie obsługuje, trzyma swoją referencję). Etap bez strat (np. zapis) dostaje w kolejce
+ * wszystkie takie zdarzenia; etap stratny (np. rozsyłanie) tylko START, FINISH i CLOSE,
+ * a o pominiętych dowiaduje się przez {@code onDropped} - np. żeby wysłać klatkę kluczową.
+ */
+public final class MovePipeline implements AutoCloseable {
+
+    /** Etap potoku - wywoływany po kolei dla każdego zdarzenia. */
+    public interface Stage {
+        void onEvent(Event e) throws Exception;
+    }
+
+    public enum Type {
+        /** Gotowa linia protokołu do rozesłania (albo do jednego adresata). */
+        MESSAGE,
+        /** Wykonany ruch z planszą po ruchu. */
+        MOVE,
+        /** Klatka kluczowa - cały stan planszy (do wszystkich albo do jednego adresata). */
+        BOARD,
+        /** Obaj gracze dołączyli - partia się zaczyna. */
+        START,
+        /** Koniec partii z wynikiem (tekst). */
+        FINISH,
+        /** Zamknięcie partii - po nim etapy nie dostaną już zdarzeń tej partii. */
+        CLOSE
+    }
+
+    /** Slot bufora; pola ważne do czasu powrotu z {@link Stage#onEvent}. */
+    public static final class Event {
+        private long sequence;
+        // sequence + 1 po commit (0 - slot w trakcie wypełniania)
+        private volatile long committed;
+        private Type type;
+        private String text;
+        private Connection target;
+        private Move move;
+        private int[] captured;
+        private int blackCaptures;
+        private int whiteCaptures;
+        private BoardSnapshot snapshot;
+        private Stone nextTurn;
+        private int boardSeq;
+
+        public long getSequence() { return sequence; }
+        public Type getType() { return type; }
+        public String getText() { return text; }
+        /** Adresat wiadomości albo null, gdy do wszystkich. */
+        public Connection getTarget() { return target; }
+        public Move getMove() { return move; }
+        public int getCaptures() { return captured == null ? 0 : captured.length; }
+        /** Zbite punkty (indeksy {@code y * width + x}). */
+        public int[] getCaptured() { return captured; }
+        public int getBlackCaptures() { return blackCaptures; }
+        public int getWhiteCaptures() { return whiteCaptures; }
+        public BoardSnapshot getSnapshot() { return snapshot; }
+        public Stone getNextTurn() { return nextTurn; }
+        /** Numer stanu planszy: rośnie o 1 z każdą zmianą kamieni (ruch, zdjęcie martwych). */
+        public int getBoardSeq() { return boardSeq; }
+    }
+
+    private final AtomicReferenceArray<Event> slots;
+    private final int mask;
+    private final List<Worker> workers = new ArrayList<>();
+    private final List<ExecutorService> owned = new ArrayList<>();
+    // ostatnie opublikowane zdarzenie
+    private volatile long published = -1;
+    private long next = 0;
+    private volatile boolean running = false;
+    // po close() nowe zdarzenia są pomijane, opublikowane wcześniej - dostarczane
+    private boolean closed = false;
+
+    /** @param capacity liczba slotów, zaokrąglana w górę do potęgi dwójki */
+    public MovePipeline(int capacity) {
+        int n = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(n);
+        this.mask = n - 1;
+        for (int i = 0; i < n; i++) slots.set(i, new Event());
+    }
+
+    /** Dodaje etap z własnym wątkiem; wszystkie etapy trzeba dodać przed {@link #start()}. */
+    public synchronized MovePipeline addStage(String name, Stage stage) {
+        ExecutorService own = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "pipeline-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        owned.add(own);
+        return addStage(name, stage, own);
+    }
+
+    /** Dodaje etap bez strat uruchamiany na podanym wykonawcy (np. puli wspólnej dla wielu partii). */
+    public synchronized MovePipeline addStage(String name, Stage stage, Executor executor) {
+        return addStage(name, stage, executor, null);
+    }
+
+    /**
+     * Dodaje etap stratny: gdy zostanie o cały bufor w tyle, pomija wiadomości, ruchy i klatki
+     * (START, FINISH i CLOSE dostaje zawsze), a po pominięciu wywołuje {@code onDropped}
+     * z liczbą pominiętych zdarzeń (na wątku etapu).
+     *
+     * @param onDropped null - etap bez strat
+     */
+    public synchronized MovePipeline addStage(String name, Stage stage, Executor executor,
+                                              LongConsumer onDropped) {
+        if (running) throw new IllegalStateException("Pipeline already started");
+        workers.add(new Worker(name, stage, executor, onDropped));
+        return this;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        for (Worker w : workers) w.signal();
+    }
+
+    public synchronized void publishMessage(String text) {
+        publishMessage(text, null);
+    }
+
+    /** Wiadomość do jednego klienta, dostarczana w kolejności z pozostałymi zdarzeniami. */
+    public synchronized void publishMessage(String text, Connection target) {
+        Event e = claim(Type.MESSAGE);
+        if (e == null) return;
+        e.text = text;
+        e.target = target;
+        commit(e);
+    }
+
+    public synchronized void publishMove(Move move, int[] captured, int blackCaptures, int whiteCaptures,
+                                         BoardSnapshot snapshot, Stone nextTurn, int boardSeq) {
+        Event e = claim(Type.MOVE);
+        if (e == null) return;
+        e.move = move;
+        e.captured = captured;
+        e.boardSeq = boardSeq;
+        e.blackCaptures = blackCaptures;
+        e.whiteCaptures = whiteCaptures;
+        e.snapshot = snapshot;
+        e.nextTurn = nextTurn;
+        commit(e);
+    }
+
+    /** Klatka kluczowa; {@code target} null - do wszystkich. */
+    public synchronized void publishBoard(BoardSnapshot snapshot, int boardSeq, Connection target) {
+        Event e = claim(Type.BOARD);
+        if (e == null) return;
+        e.snapshot = snapshot;
+        e.boardSeq = boardSeq;
+        e.target = target;
+        commit(e);
+    }
+
+    public synchronized void publishStart() {
+        Event e = claim(Type.START);
+        if (e != null) commit(e);
+    }
+
+    public synchronized void publishFinish(String result) {
+        Event e = claim(Type.FINISH);
+        if (e == null) return;
+        e.text = result;
+        commit(e);
+    }
+
+    public synchronized void publishClose() {
+        Event e = claim(Type.CLOSE);
+        if (e != null) commit(e);
+    }
+
+    /** Numer ostatniego opublikowanego zdarzenia (-1, gdy brak). */
+    public long getPublished() {
+        return published;
+    }
+
+    /** Najmniejszy numer zdarzenia obsłużonego przez wszystkie etapy. */
+    public long getProcessed() {
+        long min = published;
+        for (Worker w : workers) min = Math.min(min, w.sequence);
+        return min;
+    }
+
+    // producent (pod blokadą publish*): slot dla następnego zdarzenia, null po close()
+    private Event claim(Type type) {
+        if (closed) return null;
+        long seq = next;
+        int index = (int) seq & mask;
+        Event e = slots.get(index);
+        if (e.committed != 0 && getProcessed() < e.sequence) {
+            // etap w tyle o cały bufor - zdarzenie do jego kolejki, w pierścieniu nowy obiekt
+            for (Worker w : workers) {
+                if (w.sequence < e.sequence) w.overflow(e);
+            }
+            e = new Event();
+            slots.set(index, e);
+        }
+        e.committed = 0;
+        e.sequence = seq;
+        e.type = type;
+        e.text = null;
+        e.target = null;
+        e.move = null;
+        e.snapshot = null;
+        e.nextTurn = null;
+        e.captured = null;
+        e.blackCaptures = e.whiteCaptures = e.boardSeq = 0;
+        return e;
+    }
+
+    private void commit(Event e) {
+        e.committed = e.sequence + 1;
+        next = e.sequence + 1;
+        published = e.sequence;
+        if (running) {
+            for (Worker w : workers) w.signal();
+        }
+    }
+
+    /**
+     * Zamyka potok: kolejne publish* są pomijane, a zdarzenia opublikowane wcześniej
+     * etapy jeszcze dostaną; własne wątki etapów kończą się potem.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (running) {
+            for (Worker w : workers) w.signal();
+        }
+        // zadanie po etapie w tym samym jednowątkowym wykonawcy
+        for (ExecutorService own : owned) own.execute(own::shutdown);
+    }
+
+    // jeden etap: własny licznik obsłużonych zdarzeń, zadanie zlecane wykonawcy, gdy są nowe zdarzenia
+    private final class Worker implements Runnable {
+        private final String name;
+        private final Stage stage;
+        private final Executor executor;
+        private final LongConsumer onDropped;
+        // zdarzenia usunięte z pierścienia, zanim etap je obsłużył (rosnące numery)
+        private final Queue<Event> overflow = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long sequence = -1;
+
+        Worker(String name, Stage stage, Executor executor, LongConsumer onDropped) {
+            this.name = name;
+            this.stage = stage;
+            this.executor = executor;
+            this.onDropped = onDropped;
+        }
+
+        void signal() {
+            if (scheduled.compareAndSet(false, true)) executor.execute(this);
+        }
+
+        // producent: zdarzenie znika z pierścienia, a ten etap mógł go jeszcze nie obsłużyć
+        void overflow(Event e) {
+            Type t = e.type;
+            if (onDropped == null || t == Type.START || t == Type.FINISH || t == Type.CLOSE) overflow.add(e);
+        }
+
+        // zdarzenie s z pierścienia albo z kolejki przepełnienia; null - pominięte (etap stratny)
+        private Event take(long s) {
+            Event e = slots.get((int) s & mask);
+            if (e.committed == s + 1) return e;
+            Event o;
+            while ((o = overflow.peek()) != null && o.sequence < s) overflow.poll(); // już obsłużone z pierścienia
+            if (o != null && o.sequence == s) return overflow.poll();
+            return null;
+        }
+
+        @Override
+        public void run() {
+            do {
+                long available = published;
+                long dropped = 0;
+                for (long s = sequence + 1; s <= available && running; s++) {
+                    Event e = take(s);
+                    if (e == null) {
+                        dropped++;
+                    } else {
+                        try {
+                            stage.onEvent(e);
+                        } catch (Exception ex) {
+                            System.err.println("Pipeline stage " + name + " failed: " + ex.getMessage());
+                        }
+                    }
+                    sequence = s;
+                }
+                if (dropped > 0) {
+                    System.err.println("Pipeline stage " + name + " fell behind, dropped " + dropped + " events");
+                    try {
+                        onDropped.accept(dropped);
+                    } catch (RuntimeException ex) {
+                        System.err.println("Pipeline stage " + name + " failed: " + ex.getMessage());
+                    }
+                }
+                scheduled.set(false);
+                // zdarzenie opublikowane po odczycie kursora - dokończ w tym samym zadaniu
+            } while (running && published > sequence && scheduled.compareAndSet(false, true));
+        }
+    }
+}
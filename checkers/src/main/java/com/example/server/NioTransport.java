@@ -0,0 +1,417 @@
+package com.example.server;
+
+import com.example.model.Player;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Nieblokujący transport serwera na {@link Selector}: kilka wątków pętli zdarzeń
+ * obsługuje wszystkie połączenia, więc bezczynny klient nie zajmuje wątku.
+ *
+ * Pętla 0 przyjmuje połączenia i rozdziela je po kolei między pętle. Każda pętla czyta
+ * do jednego bufora bezpośredniego i dzieli dane na linie (jak {@code readLine}); linie
+ * trafiają do {@link Server#dispatch}, więc polecenia dalej wykonuje wątek shardu partii.
+ * Wysyłanie ({@link Connection#send} z dowolnego wątku) dopisuje linię do kolejki
+ * połączenia; pętla zapisuje ją, gdy gniazdo przyjmie dane. Połączenie w protokole ramek
+ * ({@link Frames}) zbiera bajty w buforze ramek i przekazuje całe ramki.
+ */
+public final class NioTransport implements AutoCloseable {
+    /** Najdłuższa linia od klienta (bajty); dłuższa zamyka połączenie. */
+    static final int MAX_LINE = 8 * 1024;
+    /** Najwięcej niewysłanych bajtów na połączenie; klient, który nie odbiera, jest rozłączany. */
+    static final int MAX_PENDING_BYTES = 4 * 1024 * 1024;
+    private static final int READ_BUFFER = 64 * 1024;
+    private static final int BACKLOG = 1024;
+
+    private final Server server;
+    private final int port;
+    private final EventLoop[] loops;
+    // otwarcie partii czeka na shard - poza pętlą zdarzeń
+    private final ExecutorService opener = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "nio-open");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private ServerSocketChannel serverChannel;
+
+    /** @param loopCount liczba wątków pętli zdarzeń */
+    public NioTransport(Server server, int port, int loopCount) {
+        if (loopCount < 1) throw new IllegalArgumentException("Loop count must be positive: " + loopCount);
+        this.server = server;
+        this.port = port;
+        this.loops = new EventLoop[loopCount];
+    }
+
+    /** Otwiera port i uruchamia pętle; nie blokuje. */
+    public void start() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+        serverChannel.configureBlocking(false);
+        EventLoop acceptor = loops[0];
+        acceptor.execute(() -> {
+            try {
+                serverChannel.register(acceptor.selector, SelectionKey.OP_ACCEPT);
+            } catch (IOException e) {
+                System.err.println("Cannot accept connections: " + e.getMessage());
+            }
+        });
+        for (EventLoop loop : loops) loop.thread.start();
+        System.out.println("Server listening on port " + getPort() + " (nio, " + loops.length + " loops)");
+    }
+
+    /** Port, na którym serwer nasłuchuje (przydatne przy porcie 0). */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /** Liczba otwartych połączeń. */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (EventLoop loop : loops) {
+            if (loop != null) loop.close();
+        }
+        if (serverChannel != null) serverChannel.close();
+        opener.shutdown();
+    }
+
+    private void accept() {
+        SocketChannel ch;
+        try {
+            while ((ch = serverChannel.accept()) != null) {
+                ch.configureBlocking(false);
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                EventLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                SocketChannel accepted = ch;
+                loop.execute(() -> loop.register(accepted));
+            }
+        } catch (IOException e) {
+            System.err.println("Accept failed: " + e.getMessage());
+        }
+    }
+
+    // jeden wątek z selektorem; zadania z innych wątków przez kolejkę i wakeup()
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER);
+        private volatile boolean running = true;
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-loop-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(SocketChannel ch) {
+            try {
+                NioConnection conn = new NioConnection(this, ch);
+                conn.key = ch.register(selector, SelectionKey.OP_READ, conn);
+                connections.incrementAndGet();
+                conn.send("WELCOME");
+            } catch (IOException e) {
+                try { ch.close(); } catch (IOException ignored) {}
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) task.run();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        NioConnection conn = (NioConnection) key.attachment();
+                        if (key.isReadable()) conn.read(readBuffer);
+                        if (key.isValid() && key.isWritable()) conn.flush();
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) System.err.println("Event loop failed: " + e.getMessage());
+            }
+        }
+
+        void close() throws IOException {
+            running = false;
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection) ((NioConnection) key.attachment()).close();
+            }
+            selector.close();
+        }
+    }
+
+    /** Połączenie obsługiwane przez pętlę zdarzeń. */
+    private final class NioConnection implements Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private volatile Player player;
+        // partia klienta; null do pierwszej linii
+        private volatile GameSession session;
+        private boolean opening = false;
+        private boolean closed = false;
+        // zamknij, gdy kolejka zapisu się opróżni
+        private boolean closeWhenFlushed = false;
+        // niedokończona linia (bajty)
+        private final ByteArrayOutputStream partial = new ByteArrayOutputStream(128);
+        // protokół ramek: niedokończone ramki od klienta (tryb zapisu, tylko wątek pętli)
+        private volatile boolean framed = false;
+        private ByteBuffer frameIn;
+        private final Queue<ByteBuffer> writes = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingBytes = new AtomicInteger();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        // członek zasięgu partii: koniec partii zamyka połączenie po wysłaniu kolejki
+        private final AutoCloseable scopeMember;
+
+        NioConnection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+            this.scopeMember = () -> loop.execute(this::closeAfterFlush);
+        }
+
+        @Override
+        public void setPlayer(Player p) {
+            this.player = p;
+        }
+
+        @Override
+        public Player getPlayer() {
+            return player;
+        }
+
+        /** Dopisuje linię do kolejki; zapis robi pętla zdarzeń. */
+        @Override
+        public void send(String msg) {
+            ByteBuffer buf = framed ? Frames.text(msg) : ByteBuffer.wrap((msg + "\n").getBytes(StandardCharsets.UTF_8));
+            enqueue(buf, buf.remaining());
+        }
+
+        @Override
+        public boolean useFrames() {
+            frameIn = ByteBuffer.allocate(Frames.HEADER + MAX_LINE);
+            framed = true;
+            return true;
+        }
+
+        @Override
+        public long backlog() {
+            return pendingBytes.get();
+        }
+
+        /** Paczka jednego zdarzenia: wspólne bajty, jeden wpis w kolejce i jeden zapis. */
+        @Override
+        public void send(MessageBatch batch) {
+            if (framed) enqueue(batch.framed(), batch.frameByteCount());
+            else enqueue(batch.encoded(), batch.byteCount());
+        }
+
+        private void enqueue(ByteBuffer buf, int bytes) {
+            if (pendingBytes.addAndGet(bytes) > MAX_PENDING_BYTES) {
+                loop.execute(this::close);
+                return;
+            }
+            writes.add(buf);
+            if (flushScheduled.compareAndSet(false, true)) loop.execute(this::flush);
+        }
+
+        // wątek pętli: zapisuje kolejkę, aż gniazdo przestanie przyjmować dane
+        void flush() {
+            if (closed) return;
+            try {
+                while (true) {
+                    ByteBuffer buf;
+                    while ((buf = writes.peek()) != null) {
+                        int n = channel.write(buf);
+                        pendingBytes.addAndGet(-n);
+                        if (buf.hasRemaining()) {
+                            // bufor gniazda pełny - dokończ po OP_WRITE
+                            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                            return;
+                        }
+                        writes.poll();
+                    }
+                    if (closeWhenFlushed) {
+                        close();
+                        return;
+                    }
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    flushScheduled.set(false);
+                    // send() mógł dopisać linię po opróżnieniu kolejki
+                    if (writes.isEmpty() || !flushScheduled.compareAndSet(false, true)) return;
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        // wątek pętli: czyta dostępne bajty i dzieli je na linie
+        void read(ByteBuffer buffer) {
+            int n;
+            try {
+                buffer.clear();
+                n = channel.read(buffer);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (n < 0) {
+                close();
+                return;
+            }
+            buffer.flip();
+            if (framed && session != null) {
+                onFrameBytes(buffer);
+                return;
+            }
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b != '\n') {
+                    partial.write(b);
+                    if (partial.size() > MAX_LINE) {
+                        close();
+                        return;
+                    }
+                    continue;
+                }
+                if (!onLine(takeLine())) {
+                    // czekamy na otwarcie partii - resztę bufora zachowaj na później
+                    while (buffer.hasRemaining()) partial.write(buffer.get());
+                    return;
+                }
+            }
+        }
+
+        // wątek pętli: dokleja bajty do bufora ramek i przekazuje każdą pełną ramkę
+        private void onFrameBytes(ByteBuffer src) {
+            while (src.hasRemaining() && !closed) {
+                int limit = src.limit();
+                src.limit(src.position() + Math.min(src.remaining(), frameIn.remaining()));
+                frameIn.put(src);
+                src.limit(limit);
+                frameIn.flip();
+                int length;
+                while ((length = Frames.peekLength(frameIn)) >= 0) {
+                    if (length > MAX_LINE) {
+                        close();
+                        return;
+                    }
+                    int end = frameIn.position() + Frames.HEADER + length;
+                    if (end > frameIn.limit()) break;
+                    int filled = frameIn.limit();
+                    frameIn.limit(end);
+                    server.dispatch(session, frameIn, this);
+                    frameIn.limit(filled).position(end);
+                }
+                frameIn.compact();
+            }
+        }
+
+        private String takeLine() {
+            String line = partial.toString(StandardCharsets.UTF_8);
+            partial.reset();
+            return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+        }
+
+        // zwraca false, gdy dalsze linie muszą poczekać na otwarcie partii
+        private boolean onLine(String line) {
+            if (session != null) {
+                server.dispatch(session, line, this);
+                return true;
+            }
+            // pierwsza linia: JOIN/CREATE - wstrzymaj czytanie do czasu rejestracji
+            opening = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            opener.execute(() -> {
+                GameSession s = server.open(line, this);
+                loop.execute(() -> opened(s));
+            });
+            return false;
+        }
+
+        private void opened(GameSession s) {
+            opening = false;
+            if (s == null || closed) {
+                // błąd już w kolejce - zamknij po wysłaniu
+                if (s != null) server.disconnect(s, this);
+                closeAfterFlush();
+                return;
+            }
+            session = s;
+            if (!s.getScope().join(scopeMember)) return;
+            // linie (albo ramki), które przyszły razem z pierwszą
+            byte[] pending = partial.toByteArray();
+            partial.reset();
+            if (framed) {
+                onFrameBytes(ByteBuffer.wrap(pending));
+                if (!closed) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                return;
+            }
+            for (byte b : pending) {
+                if (b != '\n') {
+                    partial.write(b);
+                } else {
+                    server.dispatch(session, takeLine(), this);
+                }
+            }
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+
+        void closeAfterFlush() {
+            closeWhenFlushed = true;
+            flush();
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            connections.decrementAndGet();
+            if (key != null) key.cancel();
+            try { channel.close(); } catch (IOException ignored) {}
+            GameSession s = session;
+            if (s != null && !opening) {
+                s.getScope().leave(scopeMember);
+                server.disconnect(s, this);
+            }
+        }
+    }
+}
@@ -1,430 +1,278 @@
 package com.example.server;
 
-import com.example.model.Player;
-import com.example.model.PlayerFactory;
-import com.example.model.Move;
 import com.example.model.Board;
-import com.example.model.GameState;
-import com.example.model.MoveResult;
-import com.example.game.Game;
-import com.example.game.GameListener;
-import com.example.model.Stone;
+import com.example.rules.KoRule;
 import com.example.integration.GamePersistenceClient; // klient HTTP do persistence
 
 import java.io.*;
+import java.lang.reflect.Method;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
 
 /**
- * Singleton server — obsługuje do 2 graczy, deleguje logikę do Game.
- * Rozszerzone o opcjonalne wywołania do GamePersistenceClient (HTTP) do zapisu gier/ruchów.
+ * Singleton server — przyjmuje połączenia i prowadzi wiele partii naraz.
+ * Partie (po 2 graczy) trzyma {@link GameRegistry}; polecenia trafiają do {@link GameSession}
+ * na wątku shardu partii. Opcjonalnie zapisuje gry/ruchy przez GamePersistenceClient (HTTP).
+ *
+ * Pierwsza linia klienta:
+ * - {@code JOIN <name>} — nowa partia z botem (jak dotąd),
+ * - {@code CREATE <name> [WxH]} — nowa partia czekająca na drugiego gracza, odpowiedź {@code GAME <id>},
+ * - {@code JOIN <name> <id>} — dołączenie do partii utworzonej przez CREATE,
+ * - {@code WATCH <id>} — obserwowanie partii (widz dostaje zdarzenia, może tylko prosić o SYNC).
+ * Flaga {@code BINARY} na końcu linii włącza protokół ramek ({@link Frames}).
  */
-public class Server implements GameListener {
+public class Server {
     private static Server instance;
-    private boolean lastMoveWasPass = false;
 
     public static synchronized Server getInstance(int port, int boardSize) {
-        if (instance == null) instance = new Server(port, boardSize);
+        return getInstance(port, boardSize, KoRule.SIMPLE);
+    }
+
+    public static synchronized Server getInstance(int port, int boardSize, KoRule koRule) {
+        return getInstance(port, boardSize, boardSize, koRule);
+    }
+
+    /** Serwer dla planszy width x height (także prostokątnej, boki do {@link Board#MAX_SIZE}). */
+    public static synchronized Server getInstance(int port, int width, int height, KoRule koRule) {
+        if (instance == null) instance = new Server(port, width, height, koRule);
         return instance;
     }
 
     private final int port;
-    private final Game game;
-    private final PlayerFactory playerFactory = new PlayerFactory();
-    private final ConcurrentMap<String, Connection> clients = new ConcurrentHashMap<>();
+    private final int width;
+    private final int height;
+    private final KoRule koRule;
+    private final GameRegistry registry = new GameRegistry();
     private final ExecutorService exec = Executors.newCachedThreadPool();
+    // zapisy do gniazd ClientHandler (start: exec, startVirtual: wątki wirtualne)
+    private volatile ExecutorService writers = exec;
 
-    private boolean blackAccepted = false;
-    private boolean whiteAccepted = false;
+    private Server(int port, int width, int height, KoRule koRule) {
+        this.port = port;
+        this.width = width;
+        this.height = height;
+        this.koRule = koRule;
+    }
 
-    // Persistence integration
-    private GamePersistenceClient persistenceClient = null;
-    private Long externalGameId = null;
+    /** Wykonawca zapisów do gniazd dla {@link ClientHandler} tworzonych poza pętlą accept. */
+    Executor getWriters() {
+        return writers;
+    }
 
-    public Game getGame() {
-        return game;
+    public GameRegistry getRegistry() {
+        return registry;
     }
 
     public void setPersistenceClient(GamePersistenceClient client) {
-        this.persistenceClient = client;
+        registry.setPersistenceClient(client);
     }
 
-    public Long getExternalGameId() {
-        return externalGameId;
+    /** Transport blokujący: wątek na połączenie ({@link ClientHandler}). */
+    public void start() throws IOException {
+        acceptLoop(exec);
     }
 
-    private Server(int port, int boardSize) {
-        this.port = port;
-        this.game = new Game(boardSize);
-        this.game.addListener(this);
+    /**
+     * Transport blokujący na wątkach wirtualnych: ten sam {@link ClientHandler}, ale
+     * zablokowany {@code readLine} nie zajmuje wątku platformy. Wymaga Javy 21+;
+     * na starszej działa jak {@link #start()}.
+     */
+    public void startVirtual() throws IOException {
+        ExecutorService virtual = virtualThreadExecutor();
+        writers = virtual;
+        acceptLoop(virtual);
     }
 
-    public void start() throws IOException {
+    private void acceptLoop(ExecutorService handlers) throws IOException {
         try (ServerSocket ss = new ServerSocket(port)) {
             System.out.println("Server listening on port " + port);
             while (true) {
                 Socket s = ss.accept();
-                ClientHandler h = new ClientHandler(this, s);
-                exec.submit(h);
-
-                while (clients.size() < 1) {
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt(); // poprawne zachowanie break;
-                    }
-                }
-
-                BotHandler bot = new BotHandler(this, game.getBoardSize());
-                registerClient(bot, "Bot");
+                ClientHandler h = new ClientHandler(this, s, handlers);
+                handlers.submit(h);
             }
         }
     }
 
-    /**
-     * Rejestracja klienta. Zwraca false jeśli gra pełna.
-     */
-    public synchronized boolean registerClient(Connection handler, String name) {
-        if (clients.size() >= 2) {
-            handler.send("ERROR game already has two players");
-            return false;
-        }
-        Player p = playerFactory.create(name);
-        boolean joined = game.join(p);
-        if (!joined) {
-            handler.send("ERROR cannot join game");
-            return false;
-        }
-        clients.put(p.getId(), handler);
-        handler.setPlayer(p);
-        handler.send("ASSIGN " + p.getId() + " " + p.getColor());
-        broadcast("INFO Player " + p.getName() + " joined as " + p.getColor());
-        if (clients.size() == 2) {
-            broadcast("START");
-            broadcastBoard();
-            broadcast("INFO Current turn: " + game.getCurrentTurn());
-
-            // Persist the new game in DB (only once) if persistence client available
-            if (this.persistenceClient != null && this.externalGameId == null) {
-                try {
-                    // determine player names for black and white
-                    String blackName = null;
-                    String whiteName = null;
-                    for (Connection c : clients.values()) {
-                        Player pl = c.getPlayer();
-                        if (pl == null) continue;
-                        if (pl.getColor() == Stone.BLACK) blackName = pl.getName();
-                        else if (pl.getColor() == Stone.WHITE) whiteName = pl.getName();
-                    }
-                    // fallback: if colors not assigned by factory for some reason, pick any two names
-                    if (blackName == null || whiteName == null) {
-                        for (Connection c : clients.values()) {
-                            Player pl = c.getPlayer();
-                            if (pl == null) continue;
-                            if (blackName == null) blackName = pl.getName();
-                            else if (whiteName == null) whiteName = pl.getName();
-                        }
-                    }
-
-                    GamePersistenceClient gpc = this.persistenceClient;
-                    Long id = gpc.createGame(blackName == null ? "Black" : blackName,
-                                             whiteName == null ? "White" : whiteName);
-                    if (id != null) {
-                        this.externalGameId = id;
-                        System.out.println("Created external game id = " + this.externalGameId);
-                    } else {
-                        System.err.println("Persistence returned null id when creating game");
-                    }
-                } catch (Exception ex) {
-                    System.err.println("Failed to persist game start: " + ex.getMessage());
-                }
-            }
+    /** Wątek wirtualny na zadanie, jeśli JVM je ma (szukane refleksją - kompilujemy pod Javę 17). */
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads not available on Java " + Runtime.version().feature()
+                    + ", using platform threads");
+            return Executors.newCachedThreadPool();
         }
-        return true;
     }
 
     /**
-     * Handle move string from a client ("MOVE x y").
+     * Transport nieblokujący ({@link NioTransport}) z {@code loops} wątkami pętli zdarzeń;
+     * nie blokuje, zwraca uruchomiony transport.
      */
-    public void handleRawMove(String raw, Connection origin) {
-        Player originPlayer = origin.getPlayer();
-        if (originPlayer == null) {
-            origin.send("ERROR You are not registered (no JOIN received)");
-            return;
-        }
-
-        synchronized (game) {
-            if (game.getState() != GameState.RUNNING) {
-                origin.send("ERROR Game not running");
-                return;
-            }
-            if (originPlayer.getColor() != game.getCurrentTurn()) {
-                origin.send("ERROR Not your turn");
-                return;
-            }
-
-            // parse move
-            Move m = Move.parse(raw, originPlayer.getId());
-            if (m == null) {
-                origin.send("ERROR bad command. Use: MOVE <x> <y>");
-                return;
-            }
-
-            // delegate to game
-            MoveResult res = game.applyMove(m);
-            if (!res.isOk()) {
-                origin.send("ERROR " + res.getErrorMessage());
-            } // jeśli sukces, ruchy są wysyłane do clients przez onMoveApplied() (observer)
-        }
+    public NioTransport startNio(int loops) throws IOException {
+        NioTransport transport = new NioTransport(this, port, loops);
+        transport.start();
+        return transport;
     }
 
-    public void handlePass(Connection origin) {
-        Player p = origin.getPlayer();
-        if (p == null) {
-            origin.send("ERROR You are not registered");
-            return;
-        }
-
-        synchronized (game) {
-            if (game.getState() != GameState.RUNNING) {
-                origin.send("ERROR Game not running");
-                return;
+    /**
+     * Obsługa pierwszej linii klienta: tworzy partię albo dołącza do istniejącej.
+     * Zwraca partię klienta albo null (błąd wysłany do klienta).
+     */
+    public GameSession open(String line, Connection conn) {
+        String[] parts = line.trim().split("\\s+");
+        String command = parts[0].toUpperCase();
+        if (parts.length >= 3 && parts[parts.length - 1].equalsIgnoreCase(Frames.FLAG)) {
+            // dalsze wiadomości w obie strony jako ramki
+            parts = Arrays.copyOf(parts, parts.length - 1);
+            if (!conn.useFrames()) {
+                conn.send("ERROR Binary frames not supported");
+                return null;
             }
-            if (p.getColor() != game.getCurrentTurn()) {
-                origin.send("ERROR Not your turn");
-                return;
+        }
+        if (command.equals("WATCH")) {
+            if (parts.length != 2 || !parts[1].matches("\\d+")) {
+                conn.send("ERROR Expecting: WATCH <game>");
+                return null;
             }
-
-            broadcast("PASS " + p.getId());
-
-            if (lastMoveWasPass) {
-                game.setState(GameState.SCORING);
-                broadcast("SCORING");
-                broadcast("INFO Mark dead groups or request resume");
-                return;
+            long id = Long.parseLong(parts[1]);
+            GameSession session = registry.get(id);
+            if (session == null) {
+                conn.send("ERROR No game " + id);
+                return null;
             }
-
-            lastMoveWasPass = true;
-            game.nextTurn();
-            broadcast("INFO Next turn: " + game.getCurrentTurn());
+            return onShard(session, conn, () -> session.addSpectator(conn)) ? session : null;
         }
-    }
-
-    public void handleResign(Connection origin) {
-        Player p = origin.getPlayer();
-        if (p == null) {
-            origin.send("ERROR You are not registered");
-            return;
+        if (parts.length < 2 || !(command.equals("JOIN") || command.equals("CREATE"))) {
+            conn.send("ERROR Expecting: JOIN <name> [<game>], CREATE <name> [<width>x<height>] or WATCH <game>");
+            return null;
         }
 
-        synchronized (game) {
-            if (game.getState() != GameState.RUNNING) {
-                origin.send("ERROR Game not running");
-                return;
-            }
-            if (p.getColor() != game.getCurrentTurn()) {
-                origin.send("ERROR Not your turn");
-                return;
+        if (command.equals("CREATE")) {
+            int w = width;
+            int h = height;
+            String name = joinName(parts, 1, parts.length);
+            if (parts.length >= 3 && parts[parts.length - 1].matches("\\d+(x\\d+)?")) {
+                // rozmiar: "19" albo "WxH", np. "25x13"
+                String[] dims = parts[parts.length - 1].toLowerCase().split("x");
+                w = Integer.parseInt(dims[0]);
+                h = dims.length > 1 ? Integer.parseInt(dims[1]) : w;
+                name = joinName(parts, 1, parts.length - 1);
             }
-
-            //ogloszenie rezygnacji
-            broadcast("RESIGN " + p.getId());
-
-            //zmien ture i wyswietl zwyciezce
-            game.nextTurn();
-            origin.send("WINNER " + game.getCurrentTurn());
-
-            // koniec gry 
-            broadcast("END");
-            game.setState(GameState.FINISHED);
-
-            // persist finish if available
-            if (this.persistenceClient != null && this.externalGameId != null) {
-                try {
-                    String result = (game.getCurrentTurn() == Stone.BLACK) ? "BLACK_WIN" : "WHITE_WIN";
-                    this.persistenceClient.finishGame(this.externalGameId, result);
-                } catch (Exception ex) {
-                    System.err.println("Failed to persist finish (resign): " + ex.getMessage());
-                }
+            GameSession session;
+            try {
+                session = registry.create(w, h, koRule);
+            } catch (IllegalArgumentException e) {
+                conn.send("ERROR " + e.getMessage());
+                return null;
             }
+            // numer partii przed ASSIGN - drugi gracz może dołączyć dopiero po rejestracji
+            return register(session, conn, name, "GAME " + session.getId()) ? session : null;
         }
-    }
-
-    public void handleResume(Connection origin) {
-        if (game.getState() != GameState.SCORING) {
-            origin.send("ERROR Not in scoring phase");
-            return;
-        }
-
-        Player requester = origin.getPlayer();
-        Stone requesterColor = requester.getColor();
 
-        Stone nextTurn;
-
-        //przeciwnik gra pierwszy
-        if (requesterColor == Stone.BLACK) {
-            nextTurn = Stone.WHITE;
-        } else {
-            nextTurn = Stone.BLACK;
+        if (parts.length >= 3 && parts[parts.length - 1].matches("\\d+")) {
+            long id = Long.parseLong(parts[parts.length - 1]);
+            GameSession session = registry.get(id);
+            if (session == null || !session.isOpen()) {
+                conn.send("ERROR No open game " + id);
+                return null;
+            }
+            return register(session, conn, joinName(parts, 1, parts.length - 1), null) ? session : null;
         }
 
-        game.setCurrentTurn(nextTurn);
-
-        game.setState(GameState.RUNNING);
-        //powiadom klientow
-        broadcast("RESUME");
-        broadcast("INFO Next turn: " + nextTurn);
+        // JOIN <name>: nowa partia z botem
+        GameSession session = registry.create(width, height, koRule);
+        if (!register(session, conn, joinName(parts, 1, parts.length), null)) return null;
+        register(session, new BotHandler(session), "Bot", null);
+        return session;
     }
 
-    public void handleMark(String raw, Connection origin) {
-        if (game.getState() != GameState.SCORING) {
-            origin.send("ERROR Not in scoring phase");
-            return;
-        }
-
-        Player p = origin.getPlayer();
-        if (p == null) {
-            origin.send("ERROR You are not registered");
-            return;
-        }
-
-        // MARK x y DEAD/ALIVE
-        String[] parts = raw.split("\\s+");
-        if (parts.length != 4) {
-            origin.send("ERROR Use: MARK <x> <y> <DEAD|ALIVE>");
-            return;
-        }
-
-        int x, y;
-        try {
-            x = Integer.parseInt(parts[1]);
-            y = Integer.parseInt(parts[2]);
-        } catch (NumberFormatException e) {
-            origin.send("ERROR Bad coordinates");
-            return;
-        }
-
-        String status = parts[3].toUpperCase();
-        if (!status.equals("DEAD") && !status.equals("ALIVE")) {
-            origin.send("ERROR Status must be DEAD or ALIVE");
-            return;
-        }
-
-        // delegacja do Game
-        boolean ok = game.isMarkedGroupOk(x, y, status.equals("DEAD"));
-
-        if (!ok) {
-            origin.send("ERROR Cannot mark group");
-            return;
-        }
-
-        // powiadom wszystkich
-        broadcast("MARK " + x + " " + y + " " + status);
-
-        // wyślij zaktualizowaną planszę
-        broadcastBoard();
+    /** Polecenie gracza do wykonania na wątku shardu partii. */
+    public void dispatch(GameSession session, String line, Connection origin) {
+        session.execute(() -> session.handleLine(line, origin));
     }
 
-    public void handleAccept(Connection origin) {
-        if (game.getState() != GameState.SCORING) {
-            origin.send("ERROR Not in scoring phase");
+    /**
+     * Ramka polecenia gracza: bufor od początku ramki do jej końca (limit). Dane są odczytywane
+     * od razu (bufor można użyć ponownie), na wątek shardu trafiają tylko liczby.
+     */
+    public void dispatch(GameSession session, ByteBuffer frame, Connection origin) {
+        int opcode = frame.get();
+        int length = frame.getShort() & 0xFFFF;
+        if (opcode == Frames.TEXT) {
+            dispatch(session, Frames.getText(frame, length), origin);
             return;
         }
-
-        if (origin.getPlayer().getColor() == Stone.BLACK) {
-            blackAccepted = true;
-        } else {
-            whiteAccepted = true;
-        }
-
-        broadcast("ACCEPTED " + origin.getPlayer());
-
-        if (blackAccepted && whiteAccepted) {
-            finishGame();
-        }
+        int start = frame.position();
+        boolean point = (opcode == Frames.MOVE && length >= 2) || (opcode == Frames.MARK && length >= 3);
+        // ruch albo oznaczenie bez współrzędnych - "Unknown command"
+        int command = point || (opcode != Frames.MOVE && opcode != Frames.MARK) ? opcode : -1;
+        int x = point ? frame.get(start) & 0xFF : 0;
+        int y = point ? frame.get(start + 1) & 0xFF : 0;
+        boolean dead = point && opcode == Frames.MARK && frame.get(start + 2) != 0;
+        frame.position(frame.limit());
+        session.execute(() -> session.handleCommand(command, x, y, dead, origin));
     }
 
-    //przejecie martwych kamieni przeciwnika po skonczonej grze
-    private void finishGame() {
-        game.applyFinishToBoard();
-
-        int blackTotal = game.getBlackScore();
-        int whiteTotal = game.getWhiteScore();
-
-        //pokaz wynik
-        broadcast("SCORE BLACK " + blackTotal + " WHITE " + whiteTotal); 
-
-        if (blackTotal > whiteTotal) {
-            broadcast("WINNER BLACK, SCORE BLACK " + blackTotal + " WHITE " + whiteTotal);
-        } else if (whiteTotal > blackTotal) {
-            broadcast("WINNER WHITE, SCORE BLACK " + blackTotal + " WHITE " + whiteTotal);
-        } else {
-            broadcast("WINNER NONE, SCORE BLACK " + blackTotal + " WHITE " + whiteTotal);
-        }
-
-        // persist result if possible
-        if (this.persistenceClient != null && this.externalGameId != null) {
-            try {
-                String result;
-                if (blackTotal > whiteTotal) result = "BLACK_WIN";
-                else if (whiteTotal > blackTotal) result = "WHITE_WIN";
-                else result = "DRAW";
-                persistenceClient.finishGame(this.externalGameId, result);
-            } catch (Exception ex) {
-                System.err.println("Failed to persist game finish: " + ex.getMessage());
-            }
-        }
-
-        game.setState(GameState.FINISHED);
-        broadcast("END");
+    /** Klient się rozłączył. */
+    public void disconnect(GameSession session, Connection origin) {
+        session.execute(() -> session.leave(origin));
     }
 
+    // rejestracja na wątku shardu partii, wątek klienta czeka na wynik
+    private boolean register(GameSession session, Connection conn, String name, String greeting) {
+        return onShard(session, conn, () -> {
+            if (greeting != null) conn.send(greeting);
+            return session.registerClient(conn, name);
+        });
+    }
 
-
-
-    // GameListener implementation — wywoływane po poprawnym ruchu
-    @Override
-    public void onMoveApplied(Move move, MoveResult result, Board snapshotBoard) {
-        // broadcast info
-        lastMoveWasPass = false;
-        broadcast("MOVE " + move.playerId + " " + (move.pos.x) + " " + (move.pos.y));
-        if (result.getCaptures() != null && !result.getCaptures().isEmpty()) {
-            broadcast("CAPTURE " + result.getCaptures().size());
-            broadcast("CAPTURED BY WHITE " + game.getWhiteCaptures());
-            broadcast("CAPTURED BY BLACK " + game.getBlackCaptures());
-        }
-        broadcast("BOARD\n" + snapshotBoard.toString());
-        broadcast("INFO Next turn: " + game.getCurrentTurn());
-
-        // Persist the move (if persistence client available)
-        if (this.persistenceClient != null && this.externalGameId != null) {
+    private boolean onShard(GameSession session, Connection conn, BooleanSupplier action) {
+        CompletableFuture<Boolean> joined = new CompletableFuture<>();
+        session.execute(() -> {
             try {
-                int toRow = move.pos.x;
-                int toCol = move.pos.y;
-                boolean capture = result.getCaptures() != null && !result.getCaptures().isEmpty();
-                String extra = "{\"playerId\":\"" + move.playerId + "\"}";
-                persistenceClient.persistMove(this.externalGameId, -1, -1, toRow, toCol, capture, extra);
-            } catch (Exception ex) {
-                System.err.println("Failed to persist move: " + ex.getMessage());
+                joined.complete(action.getAsBoolean());
+            } catch (RuntimeException e) {
+                joined.completeExceptionally(e);
             }
+        });
+        try {
+            return joined.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            conn.send("ERROR cannot join game");
+            return false;
         }
     }
 
-    public void broadcast(String msg) {
-        clients.values().forEach(h -> h.send(msg));
-    }
-
-    public void broadcastBoard() {
-        broadcast("BOARD\n" + game.boardString());
+    private static String joinName(String[] parts, int from, int to) {
+        return String.join(" ", Arrays.copyOfRange(parts, from, to));
     }
 
     public static void main(String[] args) throws Exception {
         int port = 8888;
-        int size = 19;
+        int width = 19;
+        int height = 19;
+        KoRule koRule = KoRule.SIMPLE;
         if (args.length >= 1) port = Integer.parseInt(args[0]);
-        if (args.length >= 2) size = Integer.parseInt(args[1]);
+        if (args.length >= 2) {
+            // rozmiar: "19" albo "WxH", np. "25x13"
+            String[] dims = args[1].toLowerCase().split("x");
+            width = Integer.parseInt(dims[0]);
+            height = dims.length > 1 ? Integer.parseInt(dims[1]) : width;
+            Board.checkDimensions(width, height);
+        }
+        if (args.length >= 3) koRule = KoRule.valueOf(args[2].toUpperCase());
+        // transport: "threads" (wątek na połączenie), "virtual" (wątki wirtualne) albo "nio" (pętle zdarzeń)
+        String transport = args.length >= 4 ? args[3].toLowerCase() : "threads";
 
-        Server s = Server.getInstance(port, size);
+        Server s = Server.getInstance(port, width, height, koRule);
 
         // create persistence client pointing to http://localhost:8080
         try {
@@ -435,6 +283,13 @@ public class Server implements GameListener {
             System.err.println("Persistence client not available: " + ex.getMessage());
         }
 
-        s.start();
+        if (transport.equals("nio")) {
+            s.startNio(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+            Thread.currentThread().join(); // pętle działają na wątkach demonach
+        } else if (transport.equals("virtual")) {
+            s.startVirtual();
+        } else {
+            s.start();
+        }
     }
 }
\ No newline at end of file
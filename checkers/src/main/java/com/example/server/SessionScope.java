@@ -0,0 +1,63 @@
+package com.example.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zasięg jednej partii: zasoby (połączenia graczy), które kończą się razem z nią.
+ *
+ * Wątek obsługi gracza dopisuje swoje połączenie po dołączeniu i wypisuje je, gdy kończy
+ * się sam. Koniec partii zamyka wszystkie pozostałe zasoby, więc wątki czekające na
+ * {@code readLine} kończą pracę, zamiast wisieć po rozłączeniu przeciwnika.
+ * Zamknięcie jest jednorazowe; zasób dopisany po nim jest zamykany od razu.
+ */
+public final class SessionScope implements AutoCloseable {
+    private final List<AutoCloseable> members = new ArrayList<>();
+    private boolean closed = false;
+
+    /** Dopisuje zasób; zwraca false (i zamyka go), jeśli zasięg jest już zamknięty. */
+    public boolean join(AutoCloseable member) {
+        synchronized (this) {
+            if (!closed) {
+                members.add(member);
+                return true;
+            }
+        }
+        closeQuietly(member);
+        return false;
+    }
+
+    /** Wypisuje zasób zamknięty przez swojego właściciela. */
+    public synchronized void leave(AutoCloseable member) {
+        members.remove(member);
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /** Liczba zasobów w zasięgu. */
+    public synchronized int size() {
+        return members.size();
+    }
+
+    @Override
+    public void close() {
+        List<AutoCloseable> toClose;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            toClose = new ArrayList<>(members);
+            members.clear();
+        }
+        for (AutoCloseable m : toClose) closeQuietly(m);
+    }
+
+    private static void closeQuietly(AutoCloseable member) {
+        try {
+            member.close();
+        } catch (Exception e) {
+            System.err.println("Failed to close session member: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.server;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Widz partii z ograniczoną kolejką wychodzącą.
+ *
+ * Etap rozsyłania do widzów tylko dopisuje paczkę ({@link #offer}) i nigdy nie czeka;
+ * wysyłanie robi zadanie na puli widzów (wątek tylko na czas wysyłania, więc blokujący
+ * zapis do wolnego gniazda nie wstrzymuje innych widzów). Gdy widz nie nadąża (kolejka pełna albo
+ * połączenie ma za dużo niewysłanych bajtów), zaległe paczki są porzucane, a widz
+ * dostaje najnowszą klatkę kluczową i dalej bieżące zdarzenia.
+ */
+final class Spectator {
+    /** Najwięcej paczek w kolejce jednego widza. */
+    static final int MAX_QUEUED = 64;
+    /** Najwięcej niewysłanych bajtów w połączeniu, zanim widz dostanie kolejne paczki. */
+    static final long MAX_BACKLOG = 256 * 1024;
+    private static final long RETRY_MILLIS = 10;
+
+    private final Connection connection;
+    private final Executor pool;
+    private final ScheduledExecutorService timer;
+    private final Supplier<MessageBatch> latestKeyframe;
+    private final ArrayDeque<MessageBatch> queue = new ArrayDeque<>();
+    private boolean skipToKeyframe = false;
+    private boolean draining = false;
+    private int skips = 0;
+
+    Spectator(Connection connection, Executor pool, ScheduledExecutorService timer,
+              Supplier<MessageBatch> latestKeyframe) {
+        this.connection = connection;
+        this.pool = pool;
+        this.timer = timer;
+        this.latestKeyframe = latestKeyframe;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /** Ile razy widz został przesunięty do klatki kluczowej. */
+    synchronized int getSkips() {
+        return skips;
+    }
+
+    /** Dopisuje paczkę; przy pełnej kolejce porzuca zaległe i planuje klatkę kluczową. */
+    synchronized void offer(MessageBatch batch) {
+        if (queue.size() >= MAX_QUEUED) {
+            queue.clear();
+            skipToKeyframe = true;
+            skips++;
+        }
+        queue.add(batch);
+        if (!draining) {
+            draining = true;
+            pool.execute(this::drain);
+        }
+    }
+
+    // wątek puli widzów: wysyła kolejkę; zapis do wolnego gniazda blokuje tylko ten wątek
+    private void drain() {
+        while (true) {
+            MessageBatch next;
+            synchronized (this) {
+                if (connection.backlog() > MAX_BACKLOG) {
+                    // połączenie jeszcze nie wysłało poprzednich - spróbuj później
+                    timer.schedule(() -> pool.execute(this::drain), RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                if (skipToKeyframe) {
+                    skipToKeyframe = false;
+                    next = latestKeyframe.get();
+                } else {
+                    next = queue.poll();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+            }
+            connection.send(next);
+        }
+    }
+}
@@ -1,32 +1,59 @@
 package com.example.ui;
 
+import com.example.server.Frames;
+
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
 /**
  * Klient TCP do komunikacji z serwerem Go.
  * Odbiera linie tekstowe i przekazuje je do GUI.
+ *
+ * W trybie ramek ({@link Frames}) pierwsza wysłana linia (JOIN z flagą {@code BINARY})
+ * idzie jako tekst, a dalej polecenia i odpowiedzi są ramkami: tekst trafia do {@code onMessage},
+ * a delty i klatki kluczowe do {@link FrameListener} jako dane ramki, bez czytania kolejnych linii.
  */
 public class GoClient {
 
+    /** Odbiorca ramek innych niż TEXT (delta, klatka kluczowa). */
+    public interface FrameListener {
+        /** {@code payload} jest ważny tylko w trakcie wywołania. */
+        void onFrame(int opcode, ByteBuffer payload);
+    }
+
     private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private OutputStream out;
+    private DataInputStream in;
 
     private final Consumer<String> onMessage;
     private final Consumer<String> onError;
-
+    private final FrameListener onFrame;
+    private final boolean framed;
+    // tryb ramek: pierwsza linia (JOIN) już wysłana
+    private boolean joined = false;
+    private final ByteBuffer outFrame = ByteBuffer.allocate(Frames.HEADER + Frames.MAX_PAYLOAD);
 
 
     public GoClient(String host, int port, Consumer<String> onMessage, Consumer<String> onError) {
+        this(host, port, onMessage, null, onError);
+    }
+
+    /**
+     * @param onFrame odbiorca ramek; null - protokół tekstowy
+     */
+    public GoClient(String host, int port, Consumer<String> onMessage, FrameListener onFrame, Consumer<String> onError) {
         this.onMessage = onMessage;
+        this.onFrame = onFrame;
         this.onError = onError;
+        this.framed = onFrame != null;
 
         try {
             socket = new Socket(host, port);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
 
             // osobny wątek do odbierania wiadomości
             Thread reader = new Thread(this::listenLoop);
@@ -43,8 +70,16 @@ public class GoClient {
      */
     private void listenLoop() {
         try {
+            if (framed) {
+                // WELCOME przychodzi jeszcze jako tekst
+                String welcome = readLine();
+                if (welcome == null) return;
+                onMessage.accept(welcome);
+                readFrames();
+                return;
+            }
             String line;
-            while ((line = in.readLine()) != null) {
+            while ((line = readLine()) != null) {
                 onMessage.accept(line);
             }
         } catch (IOException e) {
@@ -52,12 +87,103 @@ public class GoClient {
         }
     }
 
+    // ramki do jednego bufora używanego ponownie
+    private void readFrames() throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(Frames.HEADER + Frames.MAX_PAYLOAD);
+        byte[] bytes = frame.array();
+        while (true) {
+            int first = in.read();
+            if (first < 0) return;
+            bytes[0] = (byte) first;
+            in.readFully(bytes, 1, Frames.HEADER - 1);
+            frame.clear();
+            int length = Frames.peekLength(frame);
+            in.readFully(bytes, Frames.HEADER, length);
+            frame.position(Frames.HEADER).limit(Frames.HEADER + length);
+            if (bytes[0] == Frames.TEXT) {
+                onMessage.accept(Frames.getText(frame, length));
+            } else {
+                onFrame.onFrame(bytes[0], frame);
+            }
+        }
+    }
+
+    // linia UTF-8 do \n (bez \r); null na końcu strumienia
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (line.size() == 0) return null;
+                break;
+            }
+            line.write(b);
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
     /**
-     * Wysyłanie komendy do serwera.
+     * Wysyłanie komendy do serwera (w trybie ramek: ramka TEXT; pierwsza linia - JOIN
+     * z flagą {@code BINARY} - jako tekst).
      */
-    public void send(String msg) {
-        if (out != null) {
-            out.println(msg);
+    public synchronized void send(String msg) {
+        if (out == null) return;
+        try {
+            if (framed && joined) {
+                outFrame.clear();
+                Frames.putText(outFrame, msg);
+                writeFrame();
+                return;
+            }
+            joined = true;
+            out.write((msg + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            onError.accept("Send failed: " + e.getMessage());
+        }
+    }
+
+    /** Ruch na (x, y). */
+    public synchronized void sendMove(int x, int y) {
+        if (!framed) {
+            send("MOVE " + x + " " + y);
+            return;
+        }
+        outFrame.clear();
+        Frames.putMove(outFrame, x, y);
+        writeFrame();
+    }
+
+    /** Oznaczenie grupy jako martwej albo żywej. */
+    public synchronized void sendMark(int x, int y, boolean dead) {
+        if (!framed) {
+            send("MARK " + x + " " + y + " " + (dead ? "DEAD" : "ALIVE"));
+            return;
+        }
+        outFrame.clear();
+        Frames.putMark(outFrame, x, y, dead);
+        writeFrame();
+    }
+
+    /** Polecenie bez danych: {@link Frames#PASS}, {@link Frames#RESIGN}, ACCEPT, RESUME, SYNC. */
+    public synchronized void sendCommand(byte opcode) {
+        if (!framed) {
+            send(Frames.commandName(opcode));
+            return;
+        }
+        outFrame.clear();
+        Frames.putCommand(outFrame, opcode);
+        writeFrame();
+    }
+
+    private void writeFrame() {
+        if (out == null) return;
+        try {
+            out.write(outFrame.array(), 0, outFrame.position());
+            out.flush();
+        } catch (IOException e) {
+            onError.accept("Send failed: " + e.getMessage());
         }
     }
 
@@ -69,12 +195,4 @@ public class GoClient {
             socket.close();
         } catch (IOException ignored) {}
     }
-
-    /**
-     * Umożliwia GUI odczytanie surowego BufferedReadera,
-     * np. do pobrania wielolinijkowego BOARD.
-     */
-    public BufferedReader getReader() {
-        return in;
-    }
 }
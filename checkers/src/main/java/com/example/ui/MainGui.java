@@ -1,15 +1,19 @@
 package com.example.ui;
 
 import com.example.model.Board;
+import com.example.model.BoardCodec;
 import com.example.model.Stone;
+import com.example.rules.IncrementalScorer;
+import com.example.rules.ScoreCache;
 import com.example.rules.TerritoryScorer;
 import com.example.model.GameState;
+import com.example.server.Frames;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -25,18 +29,35 @@ import java.util.List;
  * GUI klienta gry Go (Swing).
  * Oczekiwane komunikaty serwera (obsługiwane):
  * - {@code ASSIGN <id> <color>} — przypisanie koloru klientowi
- * - {@code BOARD} + następne n linii — stan planszy
+ * - {@code DELTA <seq> <x> <y> <color> [<x>,<y> ...]} — postawiony kamień i zbite punkty
+ * - {@code KEYFRAME <seq> <base64>} — cała plansza ({@link BoardCodec}) co kilkadziesiąt ruchów i na żądanie (SYNC)
+ * - {@code BOARD64 <base64>} — stan planszy w jednej linii ({@link BoardCodec})
  * - {@code INFO Next turn: <color>} — (opcjonalnie) informacja o kolejce</li>
  * - {@code TURN <color>} — alternatywny, prosty komunikat określający aktualną turę</li>
  * - {@code ERROR ...}, {@code WINNER ...} — komunikaty informacyjne</li>
+ * Klient łączy się w protokole ramek ({@link Frames}): delta i klatka kluczowa przychodzą jako
+ * ramki binarne, a pozostałe komunikaty jako ramki z tymi samymi liniami tekstu.
  */
 public class MainGui {
 
-    /** Rozmiar planszy (liczba wierszy/kolumn). */
-    private final int boardSize = 19;
+    /** Wymiary planszy (kolumny i wiersze); zmieniane według nagłówka BOARD64. */
+    private int boardWidth = 19;
+    private int boardHeight = 19;
+
+    // plansza, jej wymiary, numer stanu i licznik wyniku należą do EDT: wątek czytający
+    // klienta tylko parsuje wiadomości i przekazuje je przez invokeLater
 
     /** Lokalny snapshot planszy otrzymywany od serwera. */
-    private Board board = new Board(boardSize);
+    private Board board = new Board(boardWidth, boardHeight);
+
+    /** Numer stanu planszy z ostatniej delty/klatki (-1 = jeszcze brak klatki). */
+    private int boardSeq = -1;
+
+    /** Czy wysłano SYNC i czekamy na klatkę kluczową. */
+    private boolean syncRequested = false;
+
+    /** Przyrostowy licznik wyniku (przelicza tylko regiony przy zmienionych polach). */
+    private IncrementalScorer scorer = new IncrementalScorer(board);
 
     /** Kolor przypisany temu klientowi (EMPTY = jeszcze nie przypisano). */
     private Stone myColor = Stone.EMPTY;
@@ -91,12 +112,12 @@ public class MainGui {
 
     /**
      * Nawiązuje połączenie z serwerem i rejestruje callbacki obsługi wiadomości / błędów.
-     * Wysyła natychmiast komendę JOIN.
+     * Wysyła natychmiast komendę JOIN (z flagą protokołu ramek).
      */
     private void connectToServer() {
-        client = new GoClient("localhost", 8888, this::onServerMessage, this::onServerError);
+        client = new GoClient("localhost", 8888, this::onServerMessage, this::onServerFrame, this::onServerError);
         // wyślij JOIN (nazwa gracza)
-        client.send("JOIN Player1");
+        client.send("JOIN Player1 " + Frames.FLAG);
     }
 
     /** Buduje okno Swing z planszą, panelem bocznym i przyciskami. */
@@ -153,11 +174,11 @@ public class MainGui {
         bottom.add(resgnButton);
 
         acceptButton = new JButton("ACCEPT");
-        acceptButton.addActionListener(e -> client.send("ACCEPT"));
+        acceptButton.addActionListener(e -> client.sendCommand(Frames.ACCEPT));
         bottom.add(acceptButton);
 
         acceptButton = new JButton("RESUME");
-        acceptButton.addActionListener(e -> client.send("RESUME"));
+        acceptButton.addActionListener(e -> client.sendCommand(Frames.RESUME));
         bottom.add(acceptButton);
 
         JButton replayButton = new JButton("REPLAY DB");
@@ -184,7 +205,7 @@ public class MainGui {
 
     /**
      * Callback obsługujący komunikaty z serwera.
-     * Rozpoznaje ASSIGN, BOARD, INFO Next turn, TURN, ERROR i WINNER.
+     * Rozpoznaje ASSIGN, DELTA, KEYFRAME, BOARD64, INFO Next turn, TURN, ERROR i WINNER.
      *
      * @param msg linia tekstu od serwera
      */
@@ -225,10 +246,29 @@ public class MainGui {
             SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, msg, "Error", JOptionPane.ERROR_MESSAGE));
         } else if (msg.startsWith("WINNER")) {
             SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, msg));
-        } else if (msg.startsWith("BOARD")) {
-            // następne n linii to tekst planszy
-            readBoardFromServer();
+        } else if (msg.startsWith("DELTA ")) {
+            applyDelta(msg);
+        } else if (msg.startsWith("KEYFRAME ")) {
+            // KEYFRAME <seq> <base64>
+            String[] p = msg.split(" ");
             SwingUtilities.invokeLater(() -> {
+                try {
+                    applyKeyframe(Integer.parseInt(p[1]), BoardCodec.decodeBase64Reusing(p[2], board));
+                } catch (RuntimeException e) {
+                    onServerError("Failed to read board: " + e.getMessage());
+                }
+            });
+        } else if (msg.startsWith("BOARD64 ")) {
+            // cała plansza w jednej linii - bez czytania kolejnych linii z wejścia
+            String encoded = msg.substring("BOARD64 ".length()).trim();
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    Board received = BoardCodec.decodeBase64Reusing(encoded, board);
+                    if (received != board) useBoard(received);
+                } catch (IllegalArgumentException e) {
+                    onServerError("Failed to read board: " + e.getMessage());
+                    return;
+                }
                 showScore();
                 boardPanel.repaint();
             });
@@ -239,8 +279,10 @@ public class MainGui {
             boardPanel.repaint(); 
         } else if (msg.equals("RESUME")) { 
             gameState = GameState.RUNNING;
-            board.clearDeadMarks();
-            boardPanel.repaint(); 
+            SwingUtilities.invokeLater(() -> {
+                board.clearDeadMarks();
+                boardPanel.repaint();
+            });
         } else if (msg.equals("END")) { 
             gameState = GameState.FINISHED; 
         } else if (msg.startsWith("MARK")) {
@@ -249,8 +291,10 @@ public class MainGui {
             int y = Integer.parseInt(p[2]);
             boolean dead = p[3].equals("DEAD");
 
-            board.markGroup(x, y, dead);
-            boardPanel.repaint();
+            SwingUtilities.invokeLater(() -> {
+                board.markGroup(x, y, dead);
+                boardPanel.repaint();
+            });
         }
         else if (msg.startsWith("ACCEPTED")) {
             String who = msg.split(" ")[1];
@@ -270,6 +314,92 @@ public class MainGui {
 
     }
 
+    /**
+     * Ramki binarne od serwera: delta i klatka kluczowa z danych ramki (plansza w jednej
+     * ramce, bez czytania kolejnych linii z wejścia). Dane ramki są ważne tylko w trakcie
+     * wywołania, więc do EDT trafiają ich liczby albo kopia bajtów.
+     */
+    private void onServerFrame(int opcode, ByteBuffer payload) {
+        if (opcode == Frames.DELTA) {
+            // numer, x, y, kolor, pary x, y zbitych punktów
+            int seq = payload.getInt();
+            int x = payload.get() & 0xFF;
+            int y = payload.get() & 0xFF;
+            Stone color = Frames.stone(payload.get());
+            int[] captured = new int[payload.remaining() / 2 * 2];
+            for (int i = 0; i < captured.length; i++) captured[i] = payload.get() & 0xFF;
+            SwingUtilities.invokeLater(() -> applyDelta(seq, x, y, color, captured));
+        } else if (opcode == Frames.KEYFRAME) {
+            int seq = payload.getInt();
+            byte[] data = new byte[payload.remaining()];
+            payload.get(data);
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    applyKeyframe(seq, BoardCodec.decodeReusing(ByteBuffer.wrap(data), board));
+                } catch (RuntimeException e) {
+                    onServerError("Failed to read board: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    // DELTA <seq> <x> <y> <color> [<x>,<y> ...] - parsowana na wątku czytającym, nakładana w EDT
+    private void applyDelta(String msg) {
+        String[] p = msg.split(" ");
+        int[] captured = new int[2 * (p.length - 5)];
+        for (int i = 5; i < p.length; i++) {
+            int comma = p[i].indexOf(',');
+            captured[2 * (i - 5)] = Integer.parseInt(p[i].substring(0, comma));
+            captured[2 * (i - 5) + 1] = Integer.parseInt(p[i].substring(comma + 1));
+        }
+        int seq = Integer.parseInt(p[1]);
+        int x = Integer.parseInt(p[2]);
+        int y = Integer.parseInt(p[3]);
+        Stone color = Stone.valueOf(p[4]);
+        SwingUtilities.invokeLater(() -> applyDelta(seq, x, y, color, captured));
+    }
+
+    /**
+     * Nakłada deltę na lokalną planszę (EDT): kamień i zbite punkty (pary x, y), bez
+     * dekodowania całej planszy. Przy luce w numeracji prosi serwer o klatkę kluczową (SYNC).
+     */
+    private void applyDelta(int seq, int x, int y, Stone color, int[] captured) {
+        if (!deltaInOrder(seq)) return;
+        board.set(x, y, color);
+        for (int i = 0; i < captured.length; i += 2) {
+            board.set(captured[i], captured[i + 1], Stone.EMPTY);
+        }
+        deltaApplied(seq);
+    }
+
+    // czy delta jest następna po bieżącej planszy; przy luce prosi o klatkę (SYNC)
+    private boolean deltaInOrder(int seq) {
+        if (boardSeq >= 0 && seq <= boardSeq) return false; // już uwzględniona w klatce
+        if (boardSeq < 0 || seq != boardSeq + 1) {
+            if (!syncRequested) {
+                syncRequested = true;
+                client.sendCommand(Frames.SYNC);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void deltaApplied(int seq) {
+        boardSeq = seq;
+        showScore();
+        boardPanel.repaint();
+    }
+
+    // EDT: nowa plansza (także o innych wymiarach) razem z numerem stanu
+    private void applyKeyframe(int seq, Board received) {
+        if (received != board) useBoard(received);
+        boardSeq = seq;
+        syncRequested = false;
+        showScore();
+        boardPanel.repaint();
+    }
+
     /**
      * Ustawia aktualny kolor tury i aktualizuje widok/status.
      *
@@ -282,10 +412,14 @@ public class MainGui {
         });
     }
 
-    /** Wyświetla/odświeża wynik za pomocą klasy {@link TerritoryScorer}. */
+    /** Wyświetla/odświeża wynik za pomocą klasy {@link IncrementalScorer} (EDT). */
     private void showScore() {
         if (board == null) return;
-        TerritoryScorer.Score s = TerritoryScorer.score(board);
+        scorer.sync(board);
+        showScore(scorer.score());
+    }
+
+    private void showScore(TerritoryScorer.Score s) {
         StringBuilder sb = new StringBuilder();
         sb.append("Score:\n");
         sb.append(String.format("Black: stones=%d territory=%d captures=%d\n", s.blackStones, s.blackTerritory, blackCaptures));
@@ -300,38 +434,22 @@ public class MainGui {
             SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, "Not your turn — cannot pass now.", "Wait", JOptionPane.INFORMATION_MESSAGE));
             return;
         }
-        client.send("PASS");
+        client.sendCommand(Frames.PASS);
     }
 
     /** Wysyła RESIGN (wyręcza grę) — można wysłać w dowolnym momencie. */
     private void sendResign() {
         if (client == null) return;
         int ok = JOptionPane.showConfirmDialog(frame, "Are you sure you want to resign?", "Confirm", JOptionPane.YES_NO_OPTION);
-        if (ok == JOptionPane.YES_OPTION) client.send("RESIGN");
+        if (ok == JOptionPane.YES_OPTION) client.sendCommand(Frames.RESIGN);
     }
 
-    /**
-     * Odczytuje planszę (boardSize linii tekstu) z wejścia klienta i aktualizuje lokalny snapshot.
-     * Oczekuje, że klient (GoClient) ma metodę {@code getReader()} zwracającą BufferedReader.
-     */
-    private void readBoardFromServer() {
-        try {
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < boardSize; i++) {
-                String line = client.getReader().readLine();
-                if (line == null) throw new IllegalStateException("Unexpected end of board from server");
-                sb.append(line).append("\n");
-            }
-            board.updateFromString(sb.toString());
-            SwingUtilities.invokeLater(() -> {
-                showScore();
-                boardPanel.repaint();
-            });
-        } catch (IOException e) {
-            onServerError("Failed to read board: " + e.getMessage());
-        } catch (Exception e) {
-            onServerError("Failed to read board: " + e.getMessage());
-        }
+    /** Przełącza na planszę o innych wymiarach (serwer gra na innej niż domyślna); EDT. */
+    private void useBoard(Board b) {
+        boardWidth = b.getWidth();
+        boardHeight = b.getHeight();
+        board = b;
+        scorer = new IncrementalScorer(b);
     }
 
     /** Pokazuje błąd połączenia w EDT. */
@@ -418,7 +536,7 @@ public class MainGui {
         }
 
         // reset planszy
-        board = new Board(boardSize);
+        board = new Board(boardWidth, boardHeight);
         boardPanel.repaint();
 
         final int[] idx = {0};
@@ -452,6 +570,8 @@ public class MainGui {
                     // jeśli twoje Board ma inną nazwę metody, zastąp odpowiednio
                     System.err.println("Board.set(...) method not found — implement Board.set(x,y,stone) for replay.");
                 }
+                // powtórki oglądane wielokrotnie trafiają w te same pozycje
+                showScore(ScoreCache.shared().score(board));
 
             } catch (Exception ex) {
                 ex.printStackTrace();
@@ -483,10 +603,10 @@ public class MainGui {
             addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
-                    int cellSize = getWidth() / boardSize; 
+                    int cellSize = cellSize(); 
                     int x = e.getX() / cellSize; 
                     int y = e.getY() / cellSize;
-                    if (x < 0 || x >= boardSize || y < 0 || y >= boardSize) return; 
+                    if (x < 0 || x >= boardWidth || y < 0 || y >= boardHeight) return; 
                     // 1. Jeśli gra skończona - nic nie rób 
                     if (gameState == GameState.FINISHED) 
                     { 
@@ -496,8 +616,7 @@ public class MainGui {
                     else if (gameState == GameState.SCORING) {   
                         // lewy przycisk = DEAD, prawy = ALIVE 
                         boolean dead = SwingUtilities.isLeftMouseButton(e); 
-                        String status = dead ? "DEAD" : "ALIVE"; 
-                        client.send("MARK " + x + " " + y + " " + status); return; 
+                        client.sendMark(x, y, dead); return; 
                     }
                     // 3. Jesli RUNNING - normalne ruchy MOVE
                     else if (gameState == GameState.RUNNING) {
@@ -511,30 +630,37 @@ public class MainGui {
                             SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, "Not your turn.", "Wait", JOptionPane.INFORMATION_MESSAGE));
                             return;
                         }
-                        if (client != null) client.send("MOVE " + x + " " + y);
+                        if (client != null) client.sendMove(x, y);
                     }
                 }
             });
         }
 
+        // bok pola: plansza prostokątna mieści się w panelu w obu wymiarach
+        private int cellSize() {
+            return Math.max(1, Math.min(getWidth() / boardWidth, getHeight() / boardHeight));
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
 
             Graphics2D g2 = (Graphics2D) g;
-            int cell = getWidth() / boardSize;
+            int cell = cellSize();
 
             g.setColor(new Color(240, 200, 120));
             g.fillRect(0, 0, getWidth(), getHeight());
 
             g.setColor(Color.BLACK);
-            for (int i = 0; i < boardSize; i++) {
-                g.drawLine(cell / 2, cell / 2 + i * cell, cell / 2 + (boardSize - 1) * cell, cell / 2 + i * cell);
-                g.drawLine(cell / 2 + i * cell, cell / 2, cell / 2 + i * cell, cell / 2 + (boardSize - 1) * cell);
+            for (int i = 0; i < boardHeight; i++) {
+                g.drawLine(cell / 2, cell / 2 + i * cell, cell / 2 + (boardWidth - 1) * cell, cell / 2 + i * cell);
+            }
+            for (int i = 0; i < boardWidth; i++) {
+                g.drawLine(cell / 2 + i * cell, cell / 2, cell / 2 + i * cell, cell / 2 + (boardHeight - 1) * cell);
             }
 
-            for (int y = 0; y < boardSize; y++) {
-                for (int x = 0; x < boardSize; x++) {
+            for (int y = 0; y < boardHeight; y++) {
+                for (int x = 0; x < boardWidth; x++) {
                     Stone s = board.get(x, y);
                     if (s == Stone.EMPTY) continue;
 
@@ -555,8 +681,8 @@ public class MainGui {
             }
 
             if (gameState == GameState.SCORING) {
-                for (int y = 0; y < boardSize; y++) { 
-                    for (int x = 0; x < boardSize; x++) 
+                for (int y = 0; y < boardHeight; y++) { 
+                    for (int x = 0; x < boardWidth; x++) 
                     { 
                         if (board.get(x, y) == Stone.EMPTY) continue; 
                         // DEAD - czerwony, ALIVE - zielony
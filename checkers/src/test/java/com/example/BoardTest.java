@@ -3,6 +3,11 @@ package com.example;
 import org.junit.jupiter.api.Test;
 
 import com.example.model.Board;
+import com.example.model.BoardCodec;
+import com.example.model.BoardSnapshot;
+import com.example.model.Group;
+import com.example.model.GroupFinder;
+import com.example.model.NeighbourTable;
 import com.example.model.Position;
 import com.example.model.Stone;
 
@@ -39,4 +44,271 @@ class BoardTest {
         assertEquals(2, n.size());
     }
 
+    @Test
+    void countsStonesAndEmptyPoints() {
+        Board b = new Board(9);
+        b.set(0, 0, Stone.BLACK);
+        b.set(8, 8, Stone.BLACK);
+        b.set(4, 4, Stone.WHITE);
+
+        assertEquals(2, b.countStones(Stone.BLACK));
+        assertEquals(1, b.countStones(Stone.WHITE));
+        assertEquals(78, b.emptyCount());
+    }
+
+    @Test
+    void emptyPointSkipsOccupied() {
+        Board b = new Board(3);
+        b.set(0, 0, Stone.BLACK);
+        b.set(1, 0, Stone.WHITE);
+
+        assertEquals(b.index(2, 0), b.emptyPoint(0));
+        assertEquals(b.index(2, 2), b.emptyPoint(6));
+        assertEquals(-1, b.emptyPoint(7));
+        assertEquals(b.index(2, 0), b.nextEmpty(0));
+    }
+
+    @Test
+    void cloneIsIndependent() {
+        Board b = new Board(19);
+        b.set(18, 18, Stone.WHITE);
+        Board copy = b.clone();
+        copy.set(0, 0, Stone.BLACK);
+
+        assertTrue(b.samePosition(b.clone()));
+        assertFalse(b.samePosition(copy));
+        assertEquals(Stone.EMPTY, b.get(0, 0));
+        assertEquals(Stone.WHITE, copy.get(18, 18));
+    }
+
+    @Test
+    void hashFollowsStonesAndSurvivesClone() {
+        Board b = new Board(9);
+        long empty = b.hash();
+
+        b.set(3, 3, Stone.BLACK);
+        long oneStone = b.hash();
+        assertNotEquals(empty, oneStone);
+
+        Board copy = b.clone();
+        assertEquals(oneStone, copy.hash());
+
+        b.set(3, 3, Stone.WHITE);
+        assertNotEquals(oneStone, b.hash());
+        b.set(3, 3, Stone.EMPTY);
+        assertEquals(empty, b.hash());
+    }
+
+    @Test
+    void hashDoesNotDependOnOrder() {
+        Board a = new Board(5);
+        a.set(0, 0, Stone.BLACK);
+        a.set(4, 4, Stone.WHITE);
+
+        Board b = new Board(5);
+        b.set(4, 4, Stone.WHITE);
+        b.set(0, 0, Stone.BLACK);
+
+        assertEquals(a.hash(), b.hash());
+        assertEquals(a.hash(), Board.fromString(a.toString()).hash());
+    }
+
+    @Test
+    void chainTrackingMatchesGroupFinder() {
+        Board b = new Board(7);
+        java.util.Random rnd = new java.util.Random(42);
+        Stone[] colors = {Stone.BLACK, Stone.WHITE, Stone.EMPTY};
+
+        for (int step = 0; step < 400; step++) {
+            b.set(rnd.nextInt(7), rnd.nextInt(7), colors[rnd.nextInt(3)]);
+            if (step % 50 == 0) {
+                int x = rnd.nextInt(7), y = rnd.nextInt(7);
+                if (b.get(x, y) != Stone.EMPTY) b.removeChain(x, y);
+            }
+
+            for (int y = 0; y < 7; y++) {
+                for (int x = 0; x < 7; x++) {
+                    if (b.get(x, y) == Stone.EMPTY) continue;
+                    Group g = b.getGroupAt(x, y);
+                    assertEquals(g.stones.size(), b.chainSize(x, y));
+                    assertEquals(!g.liberties.isEmpty(), b.hasLiberties(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void playAndUndoRestorePosition() {
+        Board b = new Board(9);
+        java.util.Random rnd = new java.util.Random(7);
+        java.util.Deque<Board.Undo> undos = new java.util.ArrayDeque<>();
+        java.util.Deque<String> positions = new java.util.ArrayDeque<>();
+        Stone turn = Stone.BLACK;
+
+        for (int step = 0; step < 300; step++) {
+            int x = rnd.nextInt(9), y = rnd.nextInt(9);
+            if (b.get(x, y) != Stone.EMPTY || b.isSuicide(x, y, turn)) continue;
+            long expected = b.hashAfter(x, y, turn);
+            positions.push(b.toString());
+            undos.push(b.play(x, y, turn));
+            assertEquals(expected, b.hash());
+            assertEquals(b.hash(), Board.fromString(b.toString()).hash());
+            turn = (turn == Stone.BLACK) ? Stone.WHITE : Stone.BLACK;
+        }
+
+        while (!undos.isEmpty()) {
+            b.undo(undos.pop());
+            assertEquals(positions.pop(), b.toString());
+        }
+        assertEquals(new Board(9).hash(), b.hash());
+    }
+
+    @Test
+    void suicideDetectedWithoutPlaying() {
+        Board b = Board.fromString(".B.\nB..\n...");
+        String before = b.toString();
+
+        assertTrue(b.isSuicide(0, 0, Stone.WHITE));
+        assertFalse(b.isSuicide(0, 0, Stone.BLACK));
+        assertEquals(before, b.toString());
+    }
+
+    @Test
+    void neighbourTableIsSharedPerSize() {
+        Board a = new Board(5);
+        Board b = new Board(5);
+        assertSame(a.neighbours(), b.neighbours());
+
+        int corner = a.index(0, 0);
+        int edge = a.index(2, 0);
+        int center = a.index(2, 2);
+        assertEquals(2, a.neighbourCount(corner));
+        assertEquals(3, a.neighbourCount(edge));
+        assertEquals(4, a.neighbourCount(center));
+        assertEquals(NeighbourTable.BORDER, a.neighbours().neighbour(corner, 3));
+        assertEquals(a.index(2, 1), a.neighbour(center, 2));
+    }
+
+    @Test
+    void groupFinderReusesResult() {
+        Board b = Board.fromString("BB.\n.W.\n..W");
+        GroupFinder finder = new GroupFinder(b);
+
+        GroupFinder.Result first = finder.scan(0, 0);
+        assertEquals(Stone.BLACK, first.getColor());
+        assertEquals(2, first.getStoneCount());
+        assertEquals(2, first.getLibertyCount());
+
+        GroupFinder.Result second = finder.scan(1, 1);
+        assertSame(first, second);
+        assertEquals(Stone.WHITE, second.getColor());
+        assertEquals(1, second.getStoneCount());
+        assertEquals(3, second.getLibertyCount());
+
+        assertEquals(0, finder.scan(2, 0).getStoneCount());
+    }
+
+    @Test
+    void markGroupMarksWholeChain() {
+        Board b = Board.fromString("BB.\n.W.\n...");
+
+        assertTrue(b.markGroup(1, 0, true));
+        assertTrue(b.isDead(0, 0));
+        assertTrue(b.isDead(1, 0));
+        assertFalse(b.isDead(1, 1));
+        assertFalse(b.markGroup(2, 2, true));
+    }
+
+    @Test
+    void codecRoundTripKeepsStonesAndHash() {
+        Board b = new Board(19);
+        java.util.Random rnd = new java.util.Random(12);
+        Stone[] colors = {Stone.EMPTY, Stone.BLACK, Stone.WHITE};
+        for (int i = 0; i < 200; i++) {
+            b.set(rnd.nextInt(19), rnd.nextInt(19), colors[rnd.nextInt(3)]);
+        }
+
+        // 2 bity na punkt + bajty szerokości i wysokości
+        assertEquals(93, BoardCodec.encode(b).length);
+
+        Board copy = BoardCodec.fromBase64(BoardCodec.toBase64(b));
+        assertEquals(b.toString(), copy.toString());
+        assertEquals(b.hash(), copy.hash());
+
+        // dekodowanie w miejscu nadpisuje poprzednią zawartość
+        Board target = Board.fromString(b.toString());
+        target.set(0, 0, Stone.WHITE);
+        BoardCodec.decodeBase64Into(BoardCodec.toBase64(b), target);
+        assertTrue(target.samePosition(b));
+    }
+
+    @Test
+    void rectangularBoardCapturesAndRoundTrips() {
+        Board b = new Board(7, 3);
+        assertEquals(21, b.getPointCount());
+        assertTrue(b.isOnBoard(6, 2));
+        assertFalse(b.isOnBoard(2, 6));
+        assertEquals(2, b.neighbourCount(b.index(6, 2)));
+        assertEquals(3, b.neighbourCount(b.index(3, 0)));
+
+        // bicie w prawym dolnym rogu
+        b.set(6, 2, Stone.WHITE);
+        b.set(6, 1, Stone.BLACK);
+        Board.Undo u = b.play(5, 2, Stone.BLACK);
+        assertEquals(1, u.getCapturedCount());
+        assertEquals(Stone.EMPTY, b.get(6, 2));
+
+        Board copy = BoardCodec.fromBase64(BoardCodec.toBase64(b));
+        assertEquals(7, copy.getWidth());
+        assertEquals(3, copy.getHeight());
+        assertTrue(copy.samePosition(b));
+        assertEquals(b.toString(), Board.fromString(b.toString()).toString());
+
+        // plansza innego kształtu nie jest nadpisywana w miejscu
+        Board other = new Board(3, 7);
+        assertNotSame(other, BoardCodec.decodeBase64Reusing(BoardCodec.toBase64(b), other));
+        assertThrows(IllegalArgumentException.class, () -> BoardCodec.decodeBase64Into(BoardCodec.toBase64(b), other));
+    }
+
+    @Test
+    void boardSizeIsLimited() {
+        assertEquals(2 + 676, BoardCodec.encode(new Board(Board.MAX_SIZE)).length);
+        assertThrows(IllegalArgumentException.class, () -> new Board(Board.MAX_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> new Board(19, 0));
+    }
+
+    @Test
+    void snapshotSharesUnchangedChunksAndStaysImmutable() {
+        Board b = new Board(19);
+        BoardSnapshot s0 = BoardSnapshot.of(b);
+
+        b.play(3, 3, Stone.BLACK);
+        BoardSnapshot s1 = s0.next(b);
+
+        // ruch dotknął jednego 64-punktowego fragmentu, reszta jest współdzielona
+        assertEquals(s0.wordCount() - 1, s1.sharedChunks(s0));
+        assertEquals(Stone.EMPTY, s0.get(3, 3));
+        assertEquals(Stone.BLACK, s1.get(3, 3));
+        assertEquals(b.hash(), s1.hash());
+        assertSame(s1, s1.next(b), "bez zmian nie powstaje nowy snapshot");
+
+        // dalsze zmiany planszy nie wpływają na zapamiętany snapshot
+        b.set(3, 3, Stone.WHITE);
+        assertEquals(Stone.BLACK, s1.get(3, 3));
+        assertTrue(s1.toBoard().samePosition(Board.fromString(s1.toString())));
+    }
+
+    @Test
+    void groupPointSetsBehaveLikePositionSets() {
+        Board b = Board.fromString("BB..\nB...\n....\n...W");
+        Group g = b.getGroupAt(0, 0);
+
+        assertEquals(3, g.stones.size());
+        assertTrue(g.stones.contains(new Position(1, 0)));
+        assertFalse(g.stones.contains(new Position(3, 3)));
+        assertFalse(g.stones.contains(new Position(9, 9)), "pozycja spoza planszy");
+        assertEquals(java.util.Set.of(new Position(2, 0), new Position(1, 1), new Position(0, 2)),
+                new java.util.HashSet<>(g.liberties));
+        assertArrayEquals(new int[]{0, 1, 4}, g.stones.toIndexArray());
+    }
 }
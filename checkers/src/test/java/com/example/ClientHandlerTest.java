@@ -2,16 +2,29 @@ package com.example;
 
 import com.example.model.Player;
 import com.example.server.ClientHandler;
+import com.example.server.Frames;
+import com.example.server.MessageBatch;
 import com.example.server.Server;
+import com.example.ui.GoClient;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Field;
+import java.net.ConnectException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -67,4 +80,118 @@ class ClientHandlerTest {
             }
         }
     }
+
+    @Test
+    void framedClientGetsBoardAsBinaryFrames() throws Exception {
+        Server server = Server.getInstance(0, 9);
+
+        try (ServerSocket ss = new ServerSocket(0)) {
+            List<String> messages = new CopyOnWriteArrayList<>();
+            List<String> frames = new CopyOnWriteArrayList<>();
+            GoClient client = new GoClient("localhost", ss.getLocalPort(), messages::add,
+                    (opcode, payload) -> frames.add(opcode + ":" + payload.getInt()), messages::add);
+            try (Socket serverSide = ss.accept()) {
+                Thread handler = new Thread(new ClientHandler(server, serverSide));
+                handler.setDaemon(true);
+                handler.start();
+
+                client.send("JOIN Ala " + Frames.FLAG);
+                // plansza startowa jako ramka KEYFRAME, nie linie tekstu
+                waitFor(() -> frames.contains(Frames.KEYFRAME + ":0"));
+                client.sendMove(4, 4);
+                waitFor(() -> frames.contains(Frames.DELTA + ":1"));
+
+                assertEquals("WELCOME", messages.get(0));
+                assertTrue(messages.get(1).startsWith("ASSIGN "), "tekst w ramkach TEXT");
+                assertTrue(messages.stream().noneMatch(m -> m.startsWith("ERROR")), messages.toString());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    void clientThatDoesNotReadIsDisconnectedWithoutBlockingSender() throws Exception {
+        Server server = Server.getInstance(0, 9);
+
+        try (ServerSocket ss = new ServerSocket(0);
+             Socket client = new Socket("localhost", ss.getLocalPort());
+             Socket serverSide = ss.accept()) {
+            ClientHandler handler = new ClientHandler(server, serverSide);
+            Thread reader = new Thread(handler);
+            reader.setDaemon(true);
+            reader.start();
+            client.getOutputStream().write("JOIN Ala\n".getBytes(StandardCharsets.UTF_8));
+            client.getOutputStream().flush();
+            waitFor(() -> handler.getPlayer() != null);
+
+            // klient nic nie czyta: 20 MB wiadomości
+            MessageBatch batch = MessageBatch.of("X".repeat(64 * 1024));
+            long start = System.nanoTime();
+            for (int i = 0; i < 320; i++) handler.send(batch);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(elapsedMs < 2000, "send nie czeka na gniazdo: " + elapsedMs + " ms");
+            waitFor(serverSide::isClosed);
+        }
+    }
+
+    @Test
+    void virtualModeAddsNoPlatformThreadPerConnection() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Server server = Server.getInstance(port, 9);
+        Thread acceptor = new Thread(() -> {
+            try {
+                server.startVirtual();
+            } catch (IOException ignored) {
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        List<Socket> clients = new ArrayList<>();
+        try {
+            // pierwsze połączenie rozgrzewa pulę (nośniki wątków wirtualnych)
+            clients.add(connectAndReadWelcome(port));
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            int before = threads.getThreadCount();
+            int n = 50;
+            for (int i = 0; i < n; i++) clients.add(connectAndReadWelcome(port));
+            int grown = threads.getThreadCount() - before;
+
+            // Java 21+: wątki wirtualne nie są liczone; starsza: wątek obsługi na połączenie,
+            // ale bez osobnego wątku zapisu
+            boolean virtual = Runtime.version().feature() >= 21;
+            int limit = virtual ? n / 2 : n + n / 2;
+            assertTrue(grown < limit, "przyrost wątków platformy: " + grown + " na " + n + " połączeń");
+        } finally {
+            for (Socket c : clients) c.close();
+        }
+    }
+
+    // połączenie, gdy serwer już słucha; WELCOME oznacza działający wątek obsługi i zapis
+    private static Socket connectAndReadWelcome(int port) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                Socket s = new Socket("localhost", port);
+                BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                assertEquals("WELCOME", in.readLine());
+                return s;
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) throw e;
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("Timeout");
+            Thread.sleep(5);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,305 @@
+package com.example;
+
+import com.example.model.Board;
+import com.example.model.BoardCodec;
+import com.example.model.Player;
+import com.example.model.Stone;
+import com.example.server.Connection;
+import com.example.server.Frames;
+import com.example.server.GameRegistry;
+import com.example.server.GameSession;
+import com.example.server.MessageBatch;
+import com.example.rules.KoRule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRegistryTest {
+
+    // połączenie zapamiętujące otrzymane linie
+    private static class FakeConnection implements Connection {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final List<MessageBatch> batches = new CopyOnWriteArrayList<>();
+        volatile Player player;
+
+        public void send(String msg) { received.add(msg); }
+        public void send(MessageBatch batch) {
+            batches.add(batch);
+            Connection.super.send(batch);
+        }
+        public void setPlayer(Player p) { this.player = p; }
+        public Player getPlayer() { return player; }
+    }
+
+    @Test
+    void gamesAreShardedByIdAndPlayedIndependently() throws Exception {
+        int games = 200;
+        try (GameRegistry registry = new GameRegistry(4)) {
+            List<GameSession> sessions = new ArrayList<>();
+            List<FakeConnection[]> players = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                GameSession s = registry.create(9, 9, KoRule.SIMPLE);
+                FakeConnection black = new FakeConnection();
+                FakeConnection white = new FakeConnection();
+                s.execute(() -> {
+                    s.registerClient(black, "B");
+                    s.registerClient(white, "W");
+                });
+                sessions.add(s);
+                players.add(new FakeConnection[] {black, white});
+            }
+            assertEquals(games, registry.size());
+
+            // każda partia zawsze na tym samym wątku shardu
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            CountDownLatch done = new CountDownLatch(games);
+            for (int i = 0; i < games; i++) {
+                GameSession s = sessions.get(i);
+                FakeConnection[] p = players.get(i);
+                int x = i % 9;
+                s.execute(() -> s.handleLine("MOVE " + x + " 0", p[0]));
+                s.execute(() -> s.handleLine("MOVE " + x + " 1", p[1]));
+                s.execute(() -> {
+                    threads.add(s.getId() % 4 + ":" + Thread.currentThread().getName());
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS), "wszystkie polecenia wykonane");
+            assertEquals(4, threads.size(), "jeden wątek na shard");
+
+            for (int i = 0; i < games; i++) {
+                GameSession s = sessions.get(i);
+                assertEquals((int) (s.getId() % 4), registry.shardOf(s.getId()));
+                assertEquals(2, s.getGame().getHistory().moveCount(), "partia " + s.getId());
+                FakeConnection white = players.get(i)[1];
+                waitFor(() -> white.received.stream().filter(m -> m.startsWith("MOVE ")).count() == 2);
+                assertTrue(white.received.get(0).startsWith("ASSIGN "), "ASSIGN przed innymi wiadomościami");
+            }
+        }
+    }
+
+    @Test
+    void thirdPlayerIsRejectedAndResignRemovesGame() throws Exception {
+        try (GameRegistry registry = new GameRegistry(2)) {
+            GameSession s = registry.create(9, 9, KoRule.SIMPLE);
+            FakeConnection black = new FakeConnection();
+            FakeConnection white = new FakeConnection();
+            FakeConnection third = new FakeConnection();
+            assertTrue(s.registerClient(black, "B"));
+            assertTrue(s.registerClient(white, "W"));
+            assertFalse(s.isOpen());
+            assertFalse(s.registerClient(third, "X"));
+            assertEquals(List.of("ERROR game already has two players"), third.received);
+
+            s.handleLine("RESIGN", black);
+            assertNull(registry.get(s.getId()), "zakończona partia usunięta z rejestru");
+            waitFor(() -> white.received.contains("END"));
+        }
+    }
+
+    @Test
+    void leavingMidGameForfeitsAndClosesOpponentConnection() throws Exception {
+        try (GameRegistry registry = new GameRegistry(1)) {
+            GameSession s = registry.create(9, 9, KoRule.SIMPLE);
+            FakeConnection black = new FakeConnection();
+            FakeConnection white = new FakeConnection();
+            s.registerClient(black, "B");
+            s.registerClient(white, "W");
+            CountDownLatch whiteClosed = new CountDownLatch(1);
+            assertTrue(s.getScope().join(whiteClosed::countDown));
+
+            s.leave(black);
+            assertTrue(whiteClosed.await(5, TimeUnit.SECONDS), "połączenie przeciwnika zamknięte z końcem partii");
+            assertTrue(white.received.contains("WINNER WHITE"), "walkower dla przeciwnika");
+            assertEquals("END", white.received.get(white.received.size() - 1), "zamknięcie po ostatniej wiadomości");
+            assertNull(registry.get(s.getId()));
+            assertFalse(s.getScope().join(whiteClosed::countDown), "zasięg zamknięty");
+        }
+    }
+
+    @Test
+    void deltasRebuildBoardAndSyncSendsKeyframeToRequester() throws Exception {
+        try (GameRegistry registry = new GameRegistry(1)) {
+            GameSession s = registry.create(9, 9, KoRule.SIMPLE);
+            FakeConnection black = new FakeConnection();
+            FakeConnection white = new FakeConnection();
+            s.registerClient(black, "B");
+            s.registerClient(white, "W");
+            // czarny zbija biały kamień w rogu
+            s.handleLine("MOVE 1 0", black);
+            s.handleLine("MOVE 0 0", white);
+            s.handleLine("MOVE 0 1", black);
+            s.handleLine("SYNC", black);
+            waitFor(() -> black.received.stream().filter(m -> m.startsWith("KEYFRAME 3 ")).count() == 1);
+
+            Board replica = null;
+            int deltas = 0;
+            for (String m : white.received) {
+                String[] p = m.split(" ");
+                if (m.startsWith("KEYFRAME ")) {
+                    replica = BoardCodec.fromBase64(p[2]);
+                } else if (m.startsWith("DELTA ")) {
+                    assertEquals(++deltas, Integer.parseInt(p[1]), "kolejne numery delt");
+                    replica.set(Integer.parseInt(p[2]), Integer.parseInt(p[3]), Stone.valueOf(p[4]));
+                    for (int i = 5; i < p.length; i++) {
+                        String[] xy = p[i].split(",");
+                        replica.set(Integer.parseInt(xy[0]), Integer.parseInt(xy[1]), Stone.EMPTY);
+                    }
+                }
+                assertFalse(m.startsWith("BOARD64"), "bez pełnej planszy po każdym ruchu");
+            }
+            assertEquals(3, deltas);
+            assertTrue(white.received.contains("DELTA 3 0 1 BLACK 0,0"), "delta ze zbitym punktem");
+            assertTrue(replica.samePosition(s.getGame().getBoard()), "plansza z delt jak na serwerze");
+            assertEquals(1, white.received.stream().filter(m -> m.startsWith("KEYFRAME ")).count(),
+                    "SYNC tylko do pytającego");
+        }
+    }
+
+    @Test
+    void moveIsEncodedOnceAndSentAsOneBatch() throws Exception {
+        try (GameRegistry registry = new GameRegistry(1)) {
+            GameSession s = registry.create(9, 9, KoRule.SIMPLE);
+            FakeConnection black = new FakeConnection();
+            FakeConnection white = new FakeConnection();
+            s.registerClient(black, "B");
+            s.registerClient(white, "W");
+            waitFor(() -> white.received.contains("INFO Current turn: BLACK"));
+            int beforeBlack = black.batches.size();
+            int beforeWhite = white.batches.size();
+
+            s.handleLine("MOVE 4 4", black);
+            waitFor(() -> black.batches.size() == beforeBlack + 1 && white.batches.size() == beforeWhite + 1);
+            MessageBatch forWhite = white.batches.get(beforeWhite);
+            assertSame(forWhite, black.batches.get(beforeBlack), "ta sama paczka dla wszystkich odbiorców");
+            assertEquals(3, forWhite.lineCount());
+            java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+            forWhite.writeTo(bytes);
+            assertEquals("MOVE p0 4 4\nDELTA 1 4 4 BLACK\nINFO Next turn: WHITE\n", bytes.toString("UTF-8"));
+            assertEquals(bytes.size(), forWhite.encoded().remaining());
+
+            // te same wiadomości jako ramki: delta binarnie, reszta jako TEXT
+            java.nio.ByteBuffer frames = forWhite.framed();
+            assertEquals(Frames.TEXT, frames.get());
+            int length = frames.getShort() & 0xFFFF;
+            assertEquals("MOVE p0 4 4", Frames.getText(frames, length));
+            assertEquals(Frames.DELTA, frames.get());
+            assertEquals(7, frames.getShort());
+            assertEquals(1, frames.getInt());
+            assertEquals(4, frames.get());
+            assertEquals(4, frames.get());
+            assertEquals(1, frames.get(), "czarny");
+            assertEquals(Frames.TEXT, frames.get());
+            length = frames.getShort() & 0xFFFF;
+            assertEquals("INFO Next turn: WHITE", Frames.getText(frames, length));
+            assertFalse(frames.hasRemaining());
+        }
+    }
+
+    @Test
+    void slowSpectatorSkipsToKeyframeWithoutDelayingPlayers() throws Exception {
+        try (GameRegistry registry = new GameRegistry(1)) {
+            GameSession s = registry.create(19, 19, KoRule.SIMPLE);
+            FakeConnection black = new FakeConnection();
+            FakeConnection white = new FakeConnection();
+            s.registerClient(black, "B");
+            s.registerClient(white, "W");
+
+            CountDownLatch release = new CountDownLatch(1);
+            FakeConnection fast = new FakeConnection();
+            FakeConnection slow = new FakeConnection() {
+                @Override
+                public void send(MessageBatch batch) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS); // widz nie odbiera
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.send(batch);
+                }
+            };
+            assertTrue(s.addSpectator(fast));
+            assertTrue(s.addSpectator(slow));
+            assertEquals(2, s.getSpectatorCount());
+
+            // 100 ruchów bez bić: czarne w rzędach 0, 2, 4, białe w 10, 12, 14
+            int moves = 100;
+            for (int i = 0; i < moves / 2; i++) {
+                s.handleLine("MOVE " + (i % 19) + " " + (2 * (i / 19)), black);
+                s.handleLine("MOVE " + (i % 19) + " " + (10 + 2 * (i / 19)), white);
+            }
+            waitFor(() -> white.received.stream().filter(m -> m.startsWith("DELTA ")).count() == moves);
+            waitFor(() -> fast.received.contains("DELTA " + moves + " 11 14 WHITE"));
+            assertTrue(slow.received.isEmpty(), "wolny widz wciąż zablokowany");
+
+            release.countDown();
+            waitFor(() -> slow.received.stream().anyMatch(m -> m.startsWith("KEYFRAME " + moves + " ")
+                    || m.startsWith("DELTA " + moves + " ")));
+            long slowDeltas = slow.received.stream().filter(m -> m.startsWith("DELTA ")).count();
+            assertTrue(slowDeltas < moves, "zaległe delty porzucone: " + slowDeltas);
+            assertTrue(slow.received.stream().anyMatch(m -> m.startsWith("KEYFRAME ") && !m.startsWith("KEYFRAME 0 ")),
+                    "przeskok do bieżącej klatki");
+
+            s.handleLine("MOVE 0 0", fast);
+            waitFor(() -> fast.received.contains("ERROR Spectators can only SYNC"));
+        }
+    }
+
+    @Test
+    void stuckConnectionDoesNotStallOtherGamesOnShard() throws Exception {
+        try (GameRegistry registry = new GameRegistry(1)) {
+            CountDownLatch release = new CountDownLatch(1);
+            GameSession a = registry.create(9, 9, KoRule.SIMPLE);
+            FakeConnection stuck = new FakeConnection() {
+                @Override
+                public void send(MessageBatch batch) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS); // klient nie odbiera
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.send(batch);
+                }
+            };
+            a.execute(() -> {
+                a.registerClient(stuck, "B");
+                a.registerClient(new FakeConnection(), "W");
+            });
+            // więcej odpowiedzi niż slotów potoku
+            for (int i = 0; i < 400; i++) a.execute(() -> a.handleLine("SYNC", stuck));
+
+            GameSession b = registry.create(9, 9, KoRule.SIMPLE);
+            FakeConnection black = new FakeConnection();
+            CountDownLatch moved = new CountDownLatch(1);
+            b.execute(() -> {
+                b.registerClient(black, "B");
+                b.registerClient(new FakeConnection(), "W");
+                b.handleLine("MOVE 3 3", black);
+                moved.countDown();
+            });
+            assertTrue(moved.await(5, TimeUnit.SECONDS), "wątek shardu nie czeka na zablokowane połączenie");
+            assertEquals(1, b.getGame().getHistory().moveCount());
+
+            release.countDown();
+            waitFor(() -> black.received.contains("DELTA 1 3 3 BLACK"));
+            waitFor(() -> stuck.received.stream().filter(m -> m.startsWith("KEYFRAME ")).count() > 1);
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("Timeout");
+            Thread.sleep(5);
+        }
+    }
+}
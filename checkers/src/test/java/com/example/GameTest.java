@@ -80,4 +80,49 @@ class GameTest {
         assertTrue(r.isOk());
         assertEquals(Stone.WHITE, g.getCurrentTurn());
     }
+
+    @Test
+    void historyRebuildsEveryPositionFromKeyframes() {
+        Game g = new Game(9);
+        g.join(new Player("id1", "Ala", Stone.BLACK));
+        g.join(new Player("id2", "Ola", Stone.WHITE));
+        java.util.Random rnd = new java.util.Random(17);
+        java.util.List<String> states = new java.util.ArrayList<>();
+        states.add(g.boardString());
+
+        for (int i = 0; i < 150; i++) {
+            Stone c = g.getCurrentTurn();
+            int n = g.legalMoveCount(c);
+            if (n == 0 || rnd.nextInt(20) == 0) {
+                g.pass();
+            } else {
+                int p = g.legalMove(c, rnd.nextInt(n));
+                Move m = new Move(MoveType.MOVE, g.getBoard().position(p), c == Stone.BLACK ? "id1" : "id2");
+                if (!g.applyMove(m).isOk()) g.pass();
+            }
+            states.add(g.boardString());
+        }
+
+        // faza liczenia: oznaczenie, wznowienie i ponowne oznaczenie z zakończeniem
+        g.setState(GameState.SCORING);
+        int first = 0;
+        while (g.getBoard().stoneAt(first) == Stone.EMPTY) first++;
+        Position stone = g.getBoard().position(first);
+        assertTrue(g.isMarkedGroupOk(stone.x, stone.y, true));
+        g.resume(Stone.BLACK);
+        assertFalse(g.getBoard().hasDeadMarks(), "wznowienie czyści oznaczenia");
+        g.setState(GameState.SCORING);
+        assertTrue(g.isMarkedGroupOk(stone.x, stone.y, true));
+        g.applyFinishToBoard();
+        assertEquals(Stone.EMPTY, g.getBoard().get(stone.x, stone.y));
+
+        GameHistory h = g.getHistory();
+        assertEquals(states.size() - 1, g.getMoveCount());
+        for (int m = 0; m < states.size(); m++) {
+            assertEquals(states.get(m), g.boardAtMove(m).toString(), "ruch " + m);
+        }
+        Board end = h.boardAt(h.size());
+        assertTrue(end.samePosition(g.getBoard()), "stan po wszystkich zdarzeniach");
+        assertTrue(h.boardAt(h.size() - 1).isDead(stone.x, stone.y), "przed zakończeniem grupa jest oznaczona");
+    }
 }
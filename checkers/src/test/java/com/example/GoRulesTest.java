@@ -1,6 +1,7 @@
 package com.example;
 import com.example.model.*; 
 import com.example.rules.*;
+import java.util.Random;
 import org.junit.jupiter.api.Test; 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -113,5 +114,46 @@ public class GoRulesTest {
         assertEquals(Stone.EMPTY, after.get(2, 3));
     }
 
+    @Test
+    void immediateKoRecaptureShouldFail() {
+        // .BW.
+        // B.BW
+        // .BW.
+        Board b = Board.fromString(".BW.\nB.BW\n.BW.\n....");
+        Rules rules = new GoRules();
+
+        // białe biją czarny kamień na (2,1)
+        MoveResult take = rules.applyMove(b, 1, 1, Stone.WHITE);
+        assertTrue(take.isOk());
+        assertEquals(1, take.getCaptures().size());
+
+        // natychmiastowe odbicie przez czarne odtwarza poprzednią pozycję
+        MoveResult retake = rules.applyMove(take.getBoardSnapshot(), 2, 1, Stone.BLACK);
+        assertFalse(retake.isOk());
+        assertEquals("Ko - niedozwolone powtórzenie pozycji", retake.getErrorMessage());
+    }
 
+    @Test
+    void legalMoveMaskMatchesRulesDuringRandomGame() {
+        Board b = new Board(7);
+        Rules rules = new GoRules();
+        LegalMoveMask mask = new LegalMoveMask(b, rules);
+        Random rnd = new Random(7);
+        Stone turn = Stone.BLACK;
+
+        for (int move = 0; move < 150; move++) {
+            // maska gracza na ruchu musi się zgadzać z pełnym sprawdzeniem reguł
+            for (int p = 0; p < b.getPointCount(); p++) {
+                boolean expected = rules.validate(b, p % 7, p / 7, turn) == null;
+                assertEquals(expected, mask.isLegal(p, turn), "ruch " + move + ", punkt " + p);
+            }
+            int n = mask.count(turn);
+            if (n == 0) break;
+            int p = mask.point(turn, rnd.nextInt(n));
+            MoveResult r = rules.applyMove(b, p % 7, p / 7, turn);
+            assertTrue(r.isOk());
+            mask.update(r.getUndo());
+            turn = (turn == Stone.BLACK) ? Stone.WHITE : Stone.BLACK;
+        }
+    }
 }
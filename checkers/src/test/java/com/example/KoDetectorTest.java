@@ -2,7 +2,10 @@ package com.example;
 
 import org.junit.jupiter.api.Test;
 
+import com.example.model.Stone;
 import com.example.rules.KoDetector;
+import com.example.rules.KoRule;
+import com.example.rules.LongHashSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,8 +18,8 @@ public class KoDetectorTest {
     public void testSimpleKoSequence() {
         KoDetector kd = new KoDetector(); // domyślna pojemność
 
-        String pos0 = "POS0"; // symulowana reprezentacja planszy przed ruchem
-        String pos1 = "POS1"; // symulowana reprezentacja planszy po ruchu
+        long pos0 = 0x1234L; // symulowany hash planszy przed ruchem
+        long pos1 = 0x5678L; // symulowany hash planszy po ruchu
 
         // pierwsze sprawdzenie: pozycja po ruchu nie występuje w historii
         assertFalse(kd.isKo(pos1), "Puste history -> nie jest ko");
@@ -36,19 +39,57 @@ public class KoDetectorTest {
         // ustawiam małą pojemność
         KoDetector kd = new KoDetector(3);
 
-        kd.push("A"); // history: A
-        kd.push("B"); // history: B, A
-        kd.push("C"); // history: C, B, A
+        kd.push(0xAL); // history: A
+        kd.push(0xBL); // history: B, A
+        kd.push(0xCL); // history: C, B, A
 
         // najnowszy to C
-        assertTrue(kd.isKo("C"));
-        assertFalse(kd.isKo("B"));
-        assertFalse(kd.isKo("A"));
+        assertTrue(kd.isKo(0xCL));
+        assertFalse(kd.isKo(0xBL));
+        assertFalse(kd.isKo(0xAL));
 
-        kd.push("D"); // history: D, C, B  (A zostało wyrzucone)
+        kd.push(0xDL); // history: D, C, B  (A zostało wyrzucone)
 
-        assertTrue(kd.isKo("D"));
-        assertFalse(kd.isKo("C")); // C jest nadal w historii jako drugi element? isKo porównuje tylko z najnowszym
-        assertFalse(kd.isKo("A"), "A powinno zostać wyrzucone z historii i nie być wykrywalne jako ko");
+        assertTrue(kd.isKo(0xDL));
+        assertFalse(kd.isKo(0xCL)); // C jest nadal w historii jako drugi element? isKo porównuje tylko z najnowszym
+        assertFalse(kd.isKo(0xAL), "A powinno zostać wyrzucone z historii i nie być wykrywalne jako ko");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPositionalSuperkoRemembersWholeHistory() {
+        KoDetector kd = new KoDetector(KoRule.POSITIONAL_SUPERKO);
+
+        kd.push(0xAL);
+        kd.push(0xBL);
+        kd.push(0xCL);
+
+        // superko wykrywa powrót do dowolnej wcześniejszej pozycji, nie tylko ostatniej
+        assertTrue(kd.isKo(0xAL));
+        assertTrue(kd.isKo(0xBL));
+        assertFalse(kd.isKo(0xDL));
+        assertEquals(3, kd.positionsSeen());
+    }
+
+    @Test
+    public void testSituationalSuperkoDependsOnPlayerToMove() {
+        KoDetector kd = new KoDetector(KoRule.SITUATIONAL_SUPERKO);
+        kd.push(0x42L, Stone.BLACK);
+
+        assertTrue(kd.isKo(0x42L, Stone.BLACK));
+        assertFalse(kd.isKo(0x42L, Stone.WHITE), "ten sam układ, ale inny gracz na ruchu");
+    }
+
+    @Test
+    public void testLongHashSetGrows() {
+        LongHashSet set = new LongHashSet(4);
+        for (long k = 0; k < 1000; k++) {
+            assertTrue(set.add(k * 0x9E3779B97F4A7C15L));
+        }
+        assertEquals(1000, set.size());
+        assertFalse(set.add(0L), "zero już jest w zbiorze");
+        for (long k = 0; k < 1000; k++) {
+            assertTrue(set.contains(k * 0x9E3779B97F4A7C15L));
+        }
+        assertFalse(set.contains(12345L));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example;
+
+import com.example.server.MovePipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovePipelineTest {
+
+    @Test
+    void slowStageDoesNotDelayPublisherOrOtherStages() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> fast = new CopyOnWriteArrayList<>();
+        List<String> slow = new CopyOnWriteArrayList<>();
+
+        MovePipeline pipeline = new MovePipeline(16);
+        pipeline.addStage("fast", e -> fast.add(e.getText()))
+                .addStage("slow", e -> {
+                    release.await(5, TimeUnit.SECONDS); // np. wolna baza
+                    slow.add(e.getText());
+                })
+                .start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) pipeline.publishMessage("M" + i);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMs < 1000, "publikacja nie czeka na wolny etap");
+
+        waitFor(() -> fast.size() == 10);
+        assertEquals(List.of("M0", "M1", "M2", "M3", "M4", "M5", "M6", "M7", "M8", "M9"), fast);
+        assertTrue(slow.isEmpty(), "wolny etap wciąż czeka");
+
+        release.countDown();
+        waitFor(() -> pipeline.getProcessed() == 9);
+        assertEquals(fast, slow, "każdy etap widzi zdarzenia w tej samej kolejności");
+        pipeline.close();
+    }
+
+    @Test
+    void laggingStagesNeverBlockPublisher() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> lossy = new CopyOnWriteArrayList<>();
+        List<String> reliable = new CopyOnWriteArrayList<>();
+        AtomicLong dropped = new AtomicLong();
+        CountDownLatch blocked = new CountDownLatch(2);
+
+        ExecutorService fanoutPool = Executors.newSingleThreadExecutor();
+        MovePipeline pipeline = new MovePipeline(16);
+        pipeline.addStage("fanout", e -> {
+                    if (lossy.isEmpty()) awaitRelease(blocked, release);
+                    lossy.add(e.getType() == MovePipeline.Type.FINISH ? "FINISH" : e.getText());
+                }, fanoutPool, dropped::addAndGet)
+                .addStage("persist", e -> {
+                    if (reliable.isEmpty()) awaitRelease(blocked, release);
+                    reliable.add(e.getType() == MovePipeline.Type.FINISH ? "FINISH" : e.getText());
+                })
+                .start();
+
+        pipeline.publishMessage("M0");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        for (int i = 1; i < 100; i++) pipeline.publishMessage("M" + i);
+        pipeline.publishFinish("DRAW");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMs < 1000, "publikacja nie czeka na etapy o cały bufor w tyle");
+
+        release.countDown();
+        waitFor(() -> pipeline.getProcessed() == 100);
+        assertEquals(101, reliable.size(), "etap bez strat dostaje wszystko");
+        for (int i = 0; i < 100; i++) assertEquals("M" + i, reliable.get(i));
+        assertEquals("FINISH", reliable.get(100));
+
+        // onDropped po przebiegu etapu
+        waitFor(() -> lossy.size() + dropped.get() == 101);
+        assertTrue(dropped.get() > 0, "etap stratny pominął zaległe zdarzenia");
+        assertEquals("FINISH", lossy.get(lossy.size() - 1), "FINISH nie jest pomijany");
+        pipeline.close();
+        fanoutPool.shutdown();
+    }
+
+    private static void awaitRelease(CountDownLatch blocked, CountDownLatch release) {
+        blocked.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("Timeout");
+            Thread.sleep(5);
+        }
+    }
+}
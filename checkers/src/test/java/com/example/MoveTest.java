@@ -41,4 +41,33 @@ class MoveTest {
         assertEquals(-1, m.getX());
         assertEquals(5, m.getY());
     }
+
+    @Test
+    void packedMoveRoundTrip() {
+        Move m = Move.parse("MOVE 3 4", "p1");
+        int packed = m.toPacked(9, Stone.WHITE);
+
+        assertEquals(4 * 9 + 3, PackedMove.point(packed));
+        assertEquals(Stone.WHITE, PackedMove.color(packed));
+        assertFalse(PackedMove.isPass(packed));
+        assertEquals("MOVE 3 4", PackedMove.toString(packed, 9));
+
+        Move back = Move.fromPacked(packed, 9, "p1");
+        // pozycja z tablicy kanonicznych obiektów
+        assertSame(PositionTable.forSize(9).at(3, 4), back.getPos());
+
+        int pass = PackedMove.pass(Stone.BLACK);
+        assertTrue(PackedMove.isPass(pass));
+        assertEquals(MoveType.PASS, PackedMove.type(pass));
+        assertEquals(Stone.BLACK, PackedMove.color(pass));
+    }
+
+    @Test
+    void moveListGrows() {
+        MoveList list = new MoveList(2);
+        for (int i = 0; i < 100; i++) list.add(PackedMove.move(i, Stone.BLACK));
+        assertEquals(100, list.size());
+        assertEquals(57, PackedMove.point(list.get(57)));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(100));
+    }
 }
@@ -0,0 +1,131 @@
+package com.example;
+
+import com.example.server.Frames;
+import com.example.server.NioTransport;
+import com.example.server.Server;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NioTransportTest {
+
+    @BeforeEach
+    void resetServerSingleton() throws Exception {
+        Field instance = Server.class.getDeclaredField("instance");
+        instance.setAccessible(true);
+        instance.set(null, null);
+    }
+
+    @Test
+    void linesSentTogetherWithJoinAreNotLost() throws Exception {
+        Server server = Server.getInstance(0, 9);
+        try (NioTransport transport = server.startNio(2);
+             Socket client = new Socket("localhost", transport.getPort())) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("WELCOME", in.readLine());
+
+            // JOIN i ruch w jednym pakiecie, ruch dzielony na dwa zapisy
+            OutputStream out = client.getOutputStream();
+            out.write("JOIN Ala\r\nMOVE 4".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            Thread.sleep(50);
+            out.write(" 4\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            assertTrue(in.readLine().startsWith("ASSIGN "), "najpierw przydział koloru");
+            String line;
+            while ((line = in.readLine()) != null && !line.startsWith("MOVE ")) {
+                assertFalse(line.startsWith("ERROR"), line);
+            }
+            assertEquals("MOVE p0 4 4", line);
+        }
+    }
+
+    @Test
+    void binaryFlagSwitchesConnectionToFrames() throws Exception {
+        Server server = Server.getInstance(0, 9);
+        try (NioTransport transport = server.startNio(1);
+             Socket client = new Socket("localhost", transport.getPort())) {
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            byte[] welcome = new byte["WELCOME\n".length()];
+            in.readFully(welcome);
+            assertEquals("WELCOME\n", new String(welcome, StandardCharsets.UTF_8));
+
+            // JOIN z flagą i ramka ruchu w jednym pakiecie
+            byte[] join = "JOIN Ala BINARY\n".getBytes(StandardCharsets.UTF_8);
+            ByteBuffer out = ByteBuffer.allocate(join.length + Frames.HEADER + 2);
+            out.put(join);
+            Frames.putMove(out, 4, 4);
+            client.getOutputStream().write(out.array(), 0, out.position());
+
+            byte[] frame = new byte[Frames.HEADER + Frames.MAX_PAYLOAD];
+            int opcode = readFrame(in, frame);
+            assertEquals(Frames.TEXT, opcode);
+            assertTrue(text(frame).startsWith("ASSIGN "), "najpierw przydział koloru");
+            while ((opcode = readFrame(in, frame)) != Frames.DELTA) {
+                if (opcode == Frames.TEXT) assertFalse(text(frame).startsWith("ERROR"), text(frame));
+            }
+            ByteBuffer delta = ByteBuffer.wrap(frame, Frames.HEADER, length(frame));
+            assertEquals(1, delta.getInt(), "pierwsza delta");
+            assertEquals(4, delta.get());
+            assertEquals(4, delta.get());
+            assertEquals(1, delta.get(), "czarny kamień");
+            assertFalse(delta.hasRemaining(), "bez zbitych punktów");
+        }
+    }
+
+    // czyta jedną ramkę do bufora; zwraca kod
+    private static int readFrame(DataInputStream in, byte[] frame) throws Exception {
+        in.readFully(frame, 0, Frames.HEADER);
+        in.readFully(frame, Frames.HEADER, length(frame));
+        return frame[0];
+    }
+
+    private static int length(byte[] frame) {
+        return (frame[1] & 0xFF) << 8 | frame[2] & 0xFF;
+    }
+
+    private static String text(byte[] frame) {
+        return new String(frame, Frames.HEADER, length(frame), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void idleConnectionsDoNotTakeThreads() throws Exception {
+        Server server = Server.getInstance(0, 9);
+        List<Socket> clients = new ArrayList<>();
+        try (NioTransport transport = server.startNio(1)) {
+            int threadsBefore = Thread.activeCount();
+            for (int i = 0; i < 200; i++) {
+                Socket s = new Socket("localhost", transport.getPort());
+                clients.add(s);
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (transport.getConnectionCount() < 200) {
+                if (System.currentTimeMillis() > deadline) fail("Timeout");
+                Thread.sleep(5);
+            }
+            assertTrue(Thread.activeCount() - threadsBefore < 10, "połączenia bez własnych wątków");
+
+            for (Socket s : clients) s.close();
+            while (transport.getConnectionCount() > 0) {
+                if (System.currentTimeMillis() > deadline) fail("Timeout przy zamykaniu");
+                Thread.sleep(5);
+            }
+        } finally {
+            for (Socket s : clients) s.close();
+        }
+    }
+}
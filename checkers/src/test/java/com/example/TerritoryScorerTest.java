@@ -2,10 +2,14 @@ package com.example;
 
 import com.example.model.Board;
 import com.example.model.Stone;
+import com.example.rules.IncrementalScorer;
+import com.example.rules.ScoreCache;
 import com.example.rules.TerritoryScorer;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -88,4 +92,80 @@ public class TerritoryScorerTest {
         assertEquals(0, s.blackTerritory, "Black territory should be 0 (neutral)");
         assertEquals(0, s.whiteTerritory, "White territory should be 0 (neutral)");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test: licznik przyrostowy daje ten sam wynik co pełne liczenie
+     * przy losowym dokładaniu i zdejmowaniu kamieni.
+     */
+    @Test
+    public void testIncrementalScorerMatchesFullScore() {
+        Board board = new Board(9);
+        IncrementalScorer scorer = new IncrementalScorer(board);
+        Random rnd = new Random(3);
+        Stone[] colors = {Stone.EMPTY, Stone.BLACK, Stone.WHITE};
+
+        for (int step = 0; step < 400; step++) {
+            // czasem kilka zmian naraz, żeby sprawdzić łączenie i dzielenie regionów
+            int changes = 1 + rnd.nextInt(3);
+            for (int i = 0; i < changes; i++) {
+                board.set(rnd.nextInt(9), rnd.nextInt(9), colors[rnd.nextInt(3)]);
+            }
+            scorer.sync(board);
+
+            TerritoryScorer.Score expected = TerritoryScorer.score(board);
+            TerritoryScorer.Score actual = scorer.score();
+            assertEquals(expected.blackStones, actual.blackStones);
+            assertEquals(expected.whiteStones, actual.whiteStones);
+            assertEquals(expected.blackTerritory, actual.blackTerritory, "krok " + step);
+            assertEquals(expected.whiteTerritory, actual.whiteTerritory, "krok " + step);
+        }
+    }
+
+    /**
+     * Test: plansza prostokątna 7x3 - czarna ściana w kolumnie 2, biała w kolumnie 4.
+     * Lewy region jest czarny, prawy biały, środkowa kolumna neutralna.
+     */
+    @Test
+    public void testRectangularBoardTerritory() {
+        Board board = new Board(7, 3);
+        for (int y = 0; y < 3; y++) {
+            board.set(2, y, Stone.BLACK);
+            board.set(4, y, Stone.WHITE);
+        }
+
+        TerritoryScorer.Score score = TerritoryScorer.score(board);
+        assertEquals(6, score.blackTerritory, "Lewy region (2x3) powinien być czarny");
+        assertEquals(6, score.whiteTerritory, "Prawy region (2x3) powinien być biały");
+
+        IncrementalScorer scorer = new IncrementalScorer(board);
+        assertEquals(6, scorer.getBlackTerritory());
+        assertEquals(6, scorer.getWhiteTerritory());
+    }
+
+    /**
+     * Test: ponowne ocenienie tej samej pozycji trafia w pamięć podręczną,
+     * a oznaczenie martwej grupy zmienia klucz.
+     */
+    @Test
+    public void testScoreCacheHitsAndDeadMarks() {
+        ScoreCache cache = new ScoreCache(2);
+        Board board = Board.fromString(".B.\nBB.\n..W");
+
+        TerritoryScorer.Score first = cache.score(board);
+        TerritoryScorer.Score second = cache.score(board.clone());
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // martwy biały kamień liczony jak zdjęty: cała reszta to terytorium czarnych
+        board.markGroup(2, 2, true);
+        TerritoryScorer.Score withDead = cache.score(board);
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, withDead.whiteStones);
+        assertEquals(6, withDead.blackTerritory);
+
+        // pojemność 2 - trzecia pozycja wypiera najdawniej używaną
+        cache.score(new Board(3));
+        assertEquals(2, cache.size());
+    }
+}